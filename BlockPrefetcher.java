@@ -0,0 +1,223 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Speculatively loads the block(s) after the one just served into the SsrmBlockCache, so that a user
+ * scrolling forward gets the next block from memory.
+ *
+ * - At most max-concurrent prefetches run at a time; further prefetches are simply skipped.
+ * - Prefetches are tracked per grid (X-Grid-Id header). When a grid's filter/sort/grouping changes,
+ *   its pending prefetches are cancelled before they start. Loading another group node of the same
+ *   grid (e.g. expanding a sibling) is not a change, so open nodes keep their prefetches.
+ * - A request for a block that is still being prefetched waits for that prefetch (bounded by
+ *   await-timeout) instead of running the same query a second time.
+ */
+@Component
+public class BlockPrefetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockPrefetcher.class);
+
+    // A scheduled prefetch; cancelling only takes effect if the task has not started yet
+    private static final class Prefetch {
+        private final String blockSignature;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Prefetch(String blockSignature) {
+            this.blockSignature = blockSignature;
+        }
+    }
+
+    // The grid configuration (SsrmRequests.gridSignature, without group keys) and the prefetches scheduled for it
+    private record GridState(String gridSignature, List<Prefetch> prefetches) {}
+
+    private final EmployeeService employeeService;
+    private final SsrmBlockCache blockCache;
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+
+    private final boolean enabled;
+    private final int blocksAhead;
+    private final long awaitTimeoutMillis;
+    private final Semaphore permits;
+
+    // Block signature -> running or queued prefetch
+    private final Map<String, Prefetch> inFlight = new ConcurrentHashMap<>();
+
+    // Access-ordered LinkedHashMap gives us a simple LRU of grids; guarded by itself
+    private final LinkedHashMap<String, GridState> grids;
+
+    public BlockPrefetcher(EmployeeService employeeService, SsrmBlockCache blockCache, ObjectMapper objectMapper,
+                           @Qualifier("ssrmPrefetchExecutor") Executor executor,
+                           @Value("${employee.ssrm.prefetch.enabled:true}") boolean enabled,
+                           @Value("${employee.ssrm.prefetch.blocks-ahead:1}") int blocksAhead,
+                           @Value("${employee.ssrm.prefetch.max-concurrent:4}") int maxConcurrent,
+                           @Value("${employee.ssrm.prefetch.await-timeout:2s}") Duration awaitTimeout,
+                           @Value("${employee.ssrm.prefetch.max-grids:10000}") int maxGrids) {
+        this.employeeService = employeeService;
+        this.blockCache = blockCache;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.blocksAhead = blocksAhead;
+        this.awaitTimeoutMillis = awaitTimeout.toMillis();
+        this.permits = new Semaphore(maxConcurrent);
+        this.grids = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GridState> eldest) {
+                return size() > maxGrids;
+            }
+        };
+    }
+
+    /**
+     * Called before a block is served: cancels the grid's pending prefetches if its configuration changed, and waits
+     * for a running prefetch of exactly this block so the request can be answered from the block cache.
+     * @param request The SSRM request DTO.
+     * @param gridId Identifies the grid instance on the client, or null if the client does not send one.
+     */
+    public void beforeServe(ServerSideGetRowsRequest request, String gridId) {
+        if (!isActive()) {
+            return;
+        }
+        if (gridId != null) {
+            String gridSignature = SsrmRequests.gridSignature(request);
+            synchronized (grids) {
+                GridState state = grids.get(gridId);
+                if (state != null && !state.gridSignature().equals(gridSignature)) {
+                    state.prefetches().forEach(p -> p.cancelled.set(true));
+                    grids.remove(gridId);
+                    logger.debug("Filters, sort or grouping of grid {} changed, cancelled {} prefetches", gridId, state.prefetches().size());
+                }
+            }
+        }
+
+        Prefetch prefetch = inFlight.get(SsrmRequests.blockSignature(request));
+        if (prefetch != null && !prefetch.cancelled.get()) {
+            try {
+                prefetch.done.get(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                logger.debug("Prefetch of {}-{} still running, querying directly", request.getStartRow(), request.getEndRow());
+            } catch (Exception e) {
+                // The prefetch failed; the request simply runs the query itself
+            }
+        }
+    }
+
+    /**
+     * Called after a block was served: schedules the next blocksAhead blocks of the same view, unless the
+     * served block already contained the last row.
+     * @param request The SSRM request DTO that was served.
+     * @param rowCount Number of rows in the served block.
+     * @param lastRow The lastRow sent with the block (-1 if unknown).
+     * @param gridId Identifies the grid instance on the client, or null.
+     */
+    public void afterServe(ServerSideGetRowsRequest request, int rowCount, int lastRow, String gridId) {
+        if (!isActive()) {
+            return;
+        }
+        int blockSize = request.getEndRow() - request.getStartRow();
+        if (blockSize <= 0) {
+            return;
+        }
+
+        List<Prefetch> scheduled = new ArrayList<>();
+        for (int i = 1; i <= blocksAhead; i++) {
+            int startRow = request.getStartRow() + i * blockSize;
+            // Nothing beyond the known last row (or beyond a short block)
+            if ((lastRow >= 0 && startRow >= lastRow) || rowCount < blockSize) {
+                break;
+            }
+            ServerSideGetRowsRequest next = copyWithRange(request, startRow, startRow + blockSize);
+            String blockSignature = SsrmRequests.blockSignature(next);
+            if (inFlight.containsKey(blockSignature) || blockCache.get(next) != null) {
+                continue;
+            }
+            if (!permits.tryAcquire()) {
+                logger.debug("Prefetch limit reached, not prefetching {}-{}", next.getStartRow(), next.getEndRow());
+                break;
+            }
+            Prefetch prefetch = new Prefetch(blockSignature);
+            if (inFlight.putIfAbsent(blockSignature, prefetch) != null) {
+                permits.release();
+                continue;
+            }
+            try {
+                executor.execute(() -> run(next, prefetch));
+                scheduled.add(prefetch);
+            } catch (RejectedExecutionException e) {
+                finish(prefetch);
+                break;
+            }
+        }
+
+        if (gridId != null && !scheduled.isEmpty()) {
+            String gridSignature = SsrmRequests.gridSignature(request);
+            synchronized (grids) {
+                GridState state = grids.get(gridId);
+                if (state == null || !state.gridSignature().equals(gridSignature)) {
+                    state = new GridState(gridSignature, new ArrayList<>());
+                    grids.put(gridId, state);
+                }
+                // Forget prefetches that already completed so the list does not grow while scrolling
+                state.prefetches().removeIf(p -> p.done.isDone());
+                state.prefetches().addAll(scheduled);
+            }
+        }
+    }
+
+    private void run(ServerSideGetRowsRequest request, Prefetch prefetch) {
+        try {
+            if (prefetch.cancelled.get()) {
+                return;
+            }
+            // Goes through the transactional proxy; getData puts the block into the block cache
+            employeeService.getData(request);
+            logger.debug("Prefetched block {}-{}", request.getStartRow(), request.getEndRow());
+        } catch (Exception e) {
+            logger.warn("Prefetch of block {}-{} failed", request.getStartRow(), request.getEndRow(), e);
+        } finally {
+            finish(prefetch);
+        }
+    }
+
+    private void finish(Prefetch prefetch) {
+        inFlight.remove(prefetch.blockSignature, prefetch);
+        permits.release();
+        prefetch.done.complete(null);
+    }
+
+    private boolean isActive() {
+        // Prefetched blocks are only reachable through the block cache
+        return enabled && blocksAhead > 0 && blockCache.isEnabled();
+    }
+
+    private ServerSideGetRowsRequest copyWithRange(ServerSideGetRowsRequest request, int startRow, int endRow) {
+        // Deep copy through Jackson, the DTO is what the grid posts as JSON anyway
+        ServerSideGetRowsRequest copy = objectMapper.convertValue(request, ServerSideGetRowsRequest.class);
+        copy.setStartRow(startRow);
+        copy.setEndRow(endRow);
+        return copy;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.aggridssremployee.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the sorted distinct values of a column under a given set of other filters, for the set filter
+ * values endpoint. Bounded by entry count (LRU eviction) and by age (TTL).
+ * <p>
+ * Table changes do not drop the entries but mark them stale. A stale entry is still served until it is
+ * older than the refresh interval, then reloaded on the next request. A bulk upload publishes a change
+ * event per committed chunk, so this reloads each value list at most once per refresh interval while the
+ * upload runs, instead of on every request. Values loaded before a table change (see {@link #generation()})
+ * are stored as stale right away, like the entries the change marked.
+ */
+@Component
+public class DistinctValueCache {
+
+    /**
+     * A column's distinct values.
+     * @param values Sorted values (null first, if present).
+     * @param truncated True if the column has more values than were loaded.
+     */
+    public record Values(List<Object> values, boolean truncated) {
+        public Values {
+            // List.copyOf rejects nulls, and "(Blanks)" is a legitimate set filter value
+            values = Collections.unmodifiableList(new ArrayList<>(values));
+        }
+    }
+
+    private static final class Entry {
+        private final Values values;
+        private final long loadedAtNanos;
+        private boolean stale;
+
+        private Entry(Values values, long loadedAtNanos) {
+            this.values = values;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+
+    private final long ttlNanos;
+    private final long refreshIntervalNanos;
+    private final int maxEntries;
+
+    // Access-ordered LinkedHashMap gives us a simple LRU; guarded by 'this'
+    private final LinkedHashMap<String, Entry> entries;
+
+    // Bumped by every table change and clear()
+    private long generation;
+
+    public DistinctValueCache(@Value("${employee.ssrm.values.cache.ttl:10m}") Duration ttl,
+                              @Value("${employee.ssrm.values.cache.refresh-interval:5s}") Duration refreshInterval,
+                              @Value("${employee.ssrm.values.cache.max-entries:1000}") int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > DistinctValueCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param signature Signature from {@link SsrmRequests#valuesSignature}.
+     * @return The cached values, or null if absent, expired, or stale for longer than the refresh interval.
+     */
+    public synchronized Values get(String signature) {
+        Entry entry = entries.get(signature);
+        if (entry == null) {
+            return null;
+        }
+        long age = System.nanoTime() - entry.loadedAtNanos;
+        if (age > ttlNanos || (entry.stale && age > refreshIntervalNanos)) {
+            entries.remove(signature);
+            return null;
+        }
+        return entry.values;
+    }
+
+    /**
+     * @return The current generation; capture it before running the query whose values will be put.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * @param signature Signature from {@link SsrmRequests#valuesSignature}.
+     * @param values The loaded values.
+     * @param generation The {@link #generation()} captured before the values were read.
+     */
+    public synchronized void put(String signature, Values values, long generation) {
+        Entry entry = new Entry(values, System.nanoTime());
+        // Read before the last table change: the change may not be included
+        entry.stale = generation != this.generation;
+        entries.put(signature, entry);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        generation++;
+    }
+
+    @EventListener
+    public synchronized void onTableDataChanged(TableDataChangedEvent event) {
+        entries.values().forEach(entry -> entry.stale = true);
+        generation++;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.aggridssremployee.service;
+
+import java.util.List;
+
+/**
+ * One page of a column's distinct values for AG Grid's set filter.
+ * @param values The values of this page, in ascending order (null, if present, first).
+ * @param totalCount Number of values matching the search, across all pages.
+ * @param truncated True if the column has more distinct values than the server loads (employee.ssrm.values.max-values).
+ */
+public record DistinctValuesPage(List<Object> values, int totalCount, boolean truncated) {}
@@ -2,15 +2,38 @@ package com.example.aggridssremployee.controller;
 
 import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
 import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
+import com.example.aggridssremployee.service.BlockPrefetcher;
+import com.example.aggridssremployee.service.DistinctValuesPage;
 import com.example.aggridssremployee.service.EmployeeService;
+import com.example.aggridssremployee.service.GroupTree;
+import com.example.aggridssremployee.service.SsrmBatchResult;
+import com.example.aggridssremployee.service.SsrmExportService;
+import com.example.aggridssremployee.service.SsrmMetrics;
+import com.example.aggridssremployee.service.SsrmRowWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/employees")
@@ -22,19 +45,44 @@ public class EmployeeController {
 
     private static final Logger logger = LoggerFactory.getLogger(EmployeeController.class);
 
+    // Opt-in columnar encoding of /ssrm-data, selected with the Accept header
+    public static final String COLUMNAR_MEDIA_TYPE = "application/vnd.aggrid.columnar+json";
+
     private final EmployeeService employeeService;
 
+    // Spring's configured mapper, so streamed values (dates, numbers) serialize exactly like the buffered endpoint
+    private final ObjectMapper objectMapper;
+
+    private final SsrmMetrics metrics;
+
+    private final BlockPrefetcher blockPrefetcher;
+
+    private final SsrmExportService exportService;
+
     @Autowired
-    public EmployeeController(EmployeeService employeeService) {
+    public EmployeeController(EmployeeService employeeService, ObjectMapper objectMapper, SsrmMetrics metrics, BlockPrefetcher blockPrefetcher,
+                              SsrmExportService exportService) {
         this.employeeService = employeeService;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.blockPrefetcher = blockPrefetcher;
+        this.exportService = exportService;
     }
 
     @PostMapping("/ssrm-data")
-    public ResponseEntity<ServerSideGetRowsResponse> getEmployeeData(@RequestBody ServerSideGetRowsRequest request) {
-        logger.info("Received request for /api/employees/ssrm-data");
+    public ResponseEntity<?> getEmployeeData(@RequestBody ServerSideGetRowsRequest request,
+                                             @RequestHeader(value = "X-Grid-Id", required = false) String gridId) {
+        logger.debug("Received request for /api/employees/ssrm-data");
         try {
+            // Picks up a prefetch of this block (if one is running) and drops stale prefetches of this grid
+            blockPrefetcher.beforeServe(request, gridId);
             ServerSideGetRowsResponse response = employeeService.getData(request);
-            return ResponseEntity.ok(response);
+            blockPrefetcher.afterServe(request, response.getRows().size(), response.getLastRow(), gridId);
+            // Serialize here rather than in the message converter so the serialization phase can be timed
+            Timer.Sample serializeTimer = metrics.start();
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            metrics.recordPhase(serializeTimer, SsrmMetrics.PHASE_SERIALIZE, request);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
         } catch (Exception e) {
             // Log the exception properly in a real application with more context
             logger.error("Error processing AG Grid SSRM request for employees", e);
@@ -42,4 +90,236 @@ public class EmployeeController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ServerSideGetRowsResponse(Collections.emptyList(), 0)); // Or return a specific error DTO if needed
         }
     }
+
+    /**
+     * Several /ssrm-data block requests in one call. Returns one result per request, in request order:
+     * {"response": {...}} for a served block, {"error": "..."} for a block that failed (fail only that block).
+     */
+    @PostMapping("/ssrm-data/batch")
+    public ResponseEntity<List<SsrmBatchResult>> getEmployeeDataBatch(@RequestBody List<ServerSideGetRowsRequest> requests) {
+        logger.debug("Received batch of {} requests for /api/employees/ssrm-data/batch", requests.size());
+        return ResponseEntity.ok(employeeService.getDataBatch(requests));
+    }
+
+    /**
+     * Same contract as /ssrm-data, but the rows are written to the response while they are read from a
+     * database cursor instead of being collected into maps first. The JSON body is
+     * {"rows":[...],"lastRow":n}; lastRow comes after the rows since it is only known once they are read.
+     */
+    @PostMapping(value = "/ssrm-data/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamEmployeeData(@RequestBody ServerSideGetRowsRequest request) {
+        logger.debug("Received request for /api/employees/ssrm-data/stream");
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("rows");
+                employeeService.streamData(request, new JsonRowWriter(generator));
+                generator.writeEndObject();
+            } catch (Exception e) {
+                // The status line is already sent once rows were written; the truncated JSON makes the grid fail the block
+                logger.error("Error streaming AG Grid SSRM response for employees", e);
+                throw e;
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Columnar variant of /ssrm-data, chosen when the client sends "Accept: application/vnd.aggrid.columnar+json".
+     * Field names are sent once and the values column by column, filled straight from the query tuples:
+     * {"columns":["id","name",...],"data":[[ids...],[names...],...],"lastRow":n}
+     * Rows are buffered as the raw tuples (no per-row maps) because a column is only complete after the last row.
+     */
+    @PostMapping(value = "/ssrm-data", produces = COLUMNAR_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> getEmployeeDataColumnar(@RequestBody ServerSideGetRowsRequest request,
+                                                                         @RequestHeader(value = "X-Grid-Id", required = false) String gridId) {
+        logger.debug("Received columnar request for /api/employees/ssrm-data");
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                blockPrefetcher.beforeServe(request, gridId);
+                ColumnarRowWriter writer = new ColumnarRowWriter(generator);
+                employeeService.streamData(request, writer);
+                blockPrefetcher.afterServe(request, writer.tuples.size(), writer.lastRow, gridId);
+            } catch (Exception e) {
+                logger.error("Error processing columnar AG Grid SSRM request for employees", e);
+                throw e;
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(COLUMNAR_MEDIA_TYPE)).body(body);
+    }
+
+    /**
+     * Distinct values of a column for AG Grid's set filter (e.g. from the filter's values callback).
+     * The body carries the grid's current filterModel; the column's own filter is ignored.
+     * Example: POST /api/employees/values/department?search=eng&offset=0&limit=100
+     */
+    @PostMapping("/values/{field}")
+    public ResponseEntity<DistinctValuesPage> getColumnValues(@PathVariable String field,
+                                                              @RequestBody(required = false) ServerSideGetRowsRequest request,
+                                                              @RequestParam(required = false) String search,
+                                                              @RequestParam(defaultValue = "0") int offset,
+                                                              @RequestParam(defaultValue = "100") int limit) {
+        logger.debug("Received request for /api/employees/values/{}", field);
+        try {
+            return ResponseEntity.ok(employeeService.getDistinctValues(field, request, search, offset, limit));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected set filter values request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error loading set filter values for column {}", field, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Several group levels in one request, for "expand all" style loading: the body is a normal SSRM request
+     * (rowGroupCols, groupKeys of the parent node, filterModel, valueCols, sortModel); the response nests the
+     * groups of the next {@code depth} levels, each with agGrid_Count style counts and valueCols aggregates.
+     * Example: POST /api/employees/group-tree?depth=2 with groupKeys [] returns departments with their job titles.
+     */
+    @PostMapping("/group-tree")
+    public ResponseEntity<GroupTree> getGroupTree(@RequestBody ServerSideGetRowsRequest request,
+                                                  @RequestParam(defaultValue = "2") int depth) {
+        logger.debug("Received request for /api/employees/group-tree, depth={}", depth);
+        try {
+            return ResponseEntity.ok(employeeService.getGroupTree(request, depth));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected group tree request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error loading group tree", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Starts an export of the grid's filtered and sorted rows. The body is the grid's current SSRM request
+     * (the row range is ignored). Returns 202 with the job id; poll GET /export/{jobId} and download from
+     * GET /export/{jobId}/file once the status is COMPLETED.
+     * Example: POST /api/employees/export?format=xlsx
+     */
+    @PostMapping("/export")
+    public ResponseEntity<Map<String, UUID>> startExport(@RequestBody ServerSideGetRowsRequest request,
+                                                         @RequestParam(defaultValue = "csv") String format) {
+        SsrmExportService.Format exportFormat;
+        try {
+            exportFormat = SsrmExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected export request with unknown format {}", format);
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            UUID jobId = exportService.submit(request, exportFormat);
+            logger.debug("Started export {} ({})", jobId, exportFormat);
+            return ResponseEntity.accepted().body(Collections.singletonMap("jobId", jobId));
+        } catch (IllegalStateException e) {
+            logger.warn("Rejected export request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/export/{jobId}")
+    public ResponseEntity<SsrmExportService.ExportStatus> getExportStatus(@PathVariable UUID jobId) {
+        SsrmExportService.ExportStatus status = exportService.getStatus(jobId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/export/{jobId}/file")
+    public ResponseEntity<Resource> downloadExport(@PathVariable UUID jobId) {
+        SsrmExportService.ExportStatus status = exportService.getStatus(jobId);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Path file = exportService.getFile(jobId);
+        if (file == null) {
+            // Still running, or failed
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(status.format().contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("employees." + status.format().extension()).build().toString())
+                .body(new FileSystemResource(file));
+    }
+
+    /**
+     * Writes each row as a JSON object directly to the generator and closes the rows array on finish.
+     */
+    private static final class JsonRowWriter implements SsrmRowWriter {
+
+        private final JsonGenerator generator;
+
+        private JsonRowWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void writeRow(List<String> fields, Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < fields.size(); i++) {
+                generator.writeFieldName(fields.get(i));
+                generator.writeObject(values[i]);
+            }
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void finish(int lastRow, List<String> pivotResultFields) throws IOException {
+            generator.writeEndArray();
+            generator.writeNumberField("lastRow", lastRow);
+            if (pivotResultFields != null) {
+                generator.writeObjectField("pivotResultFields", pivotResultFields);
+            }
+        }
+    }
+
+    /**
+     * Collects the row tuples and writes them transposed (one JSON array per column) on finish.
+     */
+    private static final class ColumnarRowWriter implements SsrmRowWriter {
+
+        private final JsonGenerator generator;
+        private List<String> columns;
+        private final List<Object[]> tuples = new ArrayList<>();
+        private int lastRow = -1;
+
+        private ColumnarRowWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void writeRow(List<String> fields, Object[] values) {
+            // All rows of a block have the same select list, so the first row defines the columns
+            if (columns == null) {
+                columns = fields;
+            }
+            tuples.add(values);
+        }
+
+        @Override
+        public void finish(int lastRow, List<String> pivotResultFields) throws IOException {
+            this.lastRow = lastRow;
+            List<String> fields = columns != null ? columns : Collections.emptyList();
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("columns");
+            for (String field : fields) {
+                generator.writeString(field);
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("data");
+            for (int c = 0; c < fields.size(); c++) {
+                generator.writeStartArray();
+                for (Object[] tuple : tuples) {
+                    generator.writeObject(tuple[c]);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("lastRow", lastRow);
+            if (pivotResultFields != null) {
+                generator.writeObjectField("pivotResultFields", pivotResultFields);
+            }
+            generator.writeEndObject();
+        }
+    }
 }
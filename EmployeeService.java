@@ -3,21 +3,45 @@ package com.example.aggridssremployee.service;
 import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
 import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
 import com.example.aggridssremployee.model.Employee;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*; // Use jakarta.persistence.criteria.* for Spring Boot 3+
+import jakarta.persistence.metamodel.Attribute;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.Query;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 @Service
 public class EmployeeService {
@@ -27,12 +51,431 @@ public class EmployeeService {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private KeysetAnchorCache keysetAnchorCache;
+
+    @Autowired
+    private SsrmBlockCache blockCache;
+
+    // When enabled, leaf blocks that directly follow a previously served block are fetched with a
+    // keyset seek on the sort columns (+ id) instead of OFFSET, so deep scrolling stays flat.
+    @Value("${employee.ssrm.keyset-pagination.enabled:true}")
+    private boolean keysetPaginationEnabled;
+
+    /**
+     * How lastRow is determined while the end of the data has not been reached yet.
+     * EXACT runs a (cached) COUNT query, UNKNOWN returns -1 so AG Grid scrolls infinitely,
+     * ESTIMATE returns the planner's row estimate for unfiltered flat views and -1 otherwise.
+     */
+    enum CountMode { EXACT, UNKNOWN, ESTIMATE }
+
+    @Autowired
+    private RowCountCache rowCountCache;
+
+    @Value("${employee.ssrm.count-mode:EXACT}")
+    private CountMode countMode;
+
+    // Table whose planner statistics (pg_class.reltuples) are used by CountMode.ESTIMATE
+    @Value("${employee.ssrm.count-estimate-table:employee}")
+    private String countEstimateTable;
+
+    // When enabled (and the dialect supports window functions), the total is fetched together with the
+    // page rows as COUNT(...) OVER() instead of in a second round trip; the two-query path remains the fallback.
+    @Value("${employee.ssrm.single-query-count.enabled:true}")
+    private boolean singleQueryCountEnabled;
+
+    // Alias of the window-function total appended as the last column of the data query
+    private static final String TOTAL_COUNT_ALIAS = "agGrid_TotalCount";
+
+    // Lazily resolved from the Hibernate dialect, see supportsWindowFunctions()
+    private volatile Boolean windowFunctionsSupported;
+
+    @Autowired
+    private PredicatePlanCache predicatePlanCache;
+
+    // When enabled, filter models are compiled once per shape into parameterized plans and the rendered
+    // HQL is reused, so only the values are converted and bound per request
+    @Value("${employee.ssrm.plan-cache.enabled:true}")
+    private boolean predicatePlanCacheEnabled;
+
+    @Autowired
+    private PivotKeyCache pivotKeyCache;
+
+    // Upper bound on pivot key combinations; every combination becomes (valueCols) result columns
+    @Value("${employee.ssrm.pivot.max-keys:200}")
+    private int maxPivotKeys;
+
+    // Separator AG Grid uses between pivot keys and the value column id in pivot result field names
+    private static final String PIVOT_FIELD_SEPARATOR = "_";
+
+    // Select alias of the i-th pivot result column. Pivot result fields ("Human Resources_salary", "2021_salary")
+    // are not valid HQL identifiers, so the query uses positional aliases that are mapped back after reading.
+    private static final String PIVOT_ALIAS_PREFIX = "agGrid_Pivot";
+
+    // Parameter names of the pivot key values: PIVOT_PARAM_PREFIX + keyCombination + '_' + pivotColumn
+    private static final String PIVOT_PARAM_PREFIX = "pv";
+
+    // Fields selected for leaf rows, in select order. formatResults() keys the row maps by these aliases.
+    private static final List<String> LEAF_FIELDS = List.of("id", "name", "department", "jobTitle", "salary", "hireDate");
+
+    // Named parameters k0..kN hold the keyset anchor tuple
+    private static final String SEEK_PARAM_PREFIX = "k";
+
+    // Sort column of a leaf query, in the order it is applied (the id tiebreaker is always last)
+    private record SortKey(String field, boolean descending) {}
+
+    // A query ready for parameter binding, with the aliases of its select items in order
+    private record PreparedQuery<T>(TypedQuery<T> query, List<String> aliases) {}
+
+    // A bound and paged data query for one block, plus the state needed to complete the block after reading it
+    private record BlockQuery(ServerSideGetRowsRequest request, CriteriaBuilder cb, TypedQuery<Object[]> query, List<String> aliases, int pageSize,
+                              boolean isGroupingRequest, boolean isRequestForLeafDataUnderGroup, int currentGroupingLevel, boolean isLeafQuery,
+                              FilterPlan filterPlan, Function<Root<Employee>, List<Predicate>> wherePredicates, Map<String, Object> filterBindings,
+                              String filterSignature, String viewSignature, List<SortKey> sortKeys, boolean useWindowCount, List<List<Object>> pivotKeys,
+                              long rowCountGeneration, long anchorGeneration) {}
+
+    // JDBC fetch size of the streaming (cursor) path
+    @Value("${employee.ssrm.stream.fetch-size:1000}")
+    private int streamFetchSize;
+
+    @Autowired
+    private SsrmMetrics metrics;
+
+    @Autowired
+    private TextSearchSupport textSearch;
+
+    @Autowired
+    private DistinctValueCache distinctValueCache;
+
+    @Autowired
+    private SetFilterStrategy setFilterStrategy;
+
+    // Adjacent/overlapping blocks of one view in a batch are merged into one range scan up to this many rows
+    @Value("${employee.ssrm.batch.max-merged-rows:5000}")
+    private int maxMergedBatchRows;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Upper bound on the groups (at the deepest level) returned by one group tree request
+    @Value("${employee.ssrm.group-tree.max-groups:10000}")
+    private int maxGroupTreeGroups;
+
+    // Upper bound on the distinct values loaded for one set filter
+    @Value("${employee.ssrm.values.max-values:10000}")
+    private int maxDistinctValues;
+
+    // When enabled, the count query runs on its own connection/transaction while the data query runs,
+    // so a block costs max(data, count) instead of data + count on a latency-bound link to the database
+    @Value("${employee.ssrm.parallel-count.enabled:false}")
+    private boolean parallelCountEnabled;
+
+    // How long a block waits for its parallel count before answering with lastRow -1 (unknown)
+    @Value("${employee.ssrm.parallel-count.timeout-ms:5000}")
+    private long parallelCountTimeoutMs;
+
+    @Autowired
+    @Qualifier("ssrmCountExecutor")
+    private Executor countExecutor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private GroupSummaryStore groupSummaryStore;
+
+    // How often exportData reports progress, in rows
+    @Value("${employee.ssrm.export.progress-interval:10000}")
+    private int exportProgressInterval;
+
     @Transactional(readOnly = true) // Use read-only transactions for fetching data
     public ServerSideGetRowsResponse getData(ServerSideGetRowsRequest request) {
-        logger.info("Received AG Grid SSRM request: startRow={}, endRow={}, groupKeys={}, filterModel={}, sortModel={}",
+        return getData(request, true);
+    }
+
+    /**
+     * @param useBlockCache False for ranges that are not grid blocks (a merged batch range): neither read from
+     *                      nor written to the block cache, so they do not evict the blocks the grid asks for.
+     */
+    private ServerSideGetRowsResponse getData(ServerSideGetRowsRequest request, boolean useBlockCache) {
+        // Per-request details at debug level only; timings and counts are exposed as metrics (see SsrmMetrics)
+        logger.debug("Received AG Grid SSRM request: startRow={}, endRow={}, groupKeys={}, filterModel={}, sortModel={}",
                 request.getStartRow(), request.getEndRow(), request.getGroupKeys(), request.getFilterModel(), request.getSortModel());
 
+        // --- Serve identical blocks (same range, sort, filters, grouping) from memory ---
+        // Captured before anything is read: a table change while this block is built makes its put a no-op
+        long blockGeneration = blockCache.generation();
+        ServerSideGetRowsResponse cachedResponse = useBlockCache ? blockCache.get(request) : null;
+        if (useBlockCache) {
+            metrics.cacheLookup(SsrmMetrics.CACHE_BLOCK, cachedResponse != null);
+        }
+        if (cachedResponse != null) {
+            logger.debug("Block cache hit for range {}-{}", request.getStartRow(), request.getEndRow());
+            metrics.rowsReturned(request, cachedResponse.getRows().size());
+            return cachedResponse;
+        }
+
+        // --- Unfiltered group levels of a summarized grouping: read the pre-aggregated rows (rows and count) ---
+        if (groupSummaryStore.isEnabled()) {
+            ServerSideGetRowsResponse summaryResponse = groupSummaryStore.getGroupLevel(request);
+            metrics.cacheLookup(SsrmMetrics.CACHE_GROUP_SUMMARY, summaryResponse != null);
+            if (summaryResponse != null) {
+                metrics.rowsReturned(request, summaryResponse.getRows().size());
+                if (useBlockCache) {
+                    blockCache.put(request, summaryResponse, blockGeneration);
+                }
+                return summaryResponse;
+            }
+        }
+
+        BlockQuery block = prepareBlockQuery(request);
+        CompletableFuture<Long> parallelCount = startParallelCount(block);
+        Timer.Sample dataQueryTimer = metrics.start();
+        List<Object[]> results = block.query().getResultList();
+        metrics.recordPhase(dataQueryTimer, SsrmMetrics.PHASE_DATA_QUERY, request);
+        logger.debug("Fetched {} rows from DB for range {}-{}", results.size(), request.getStartRow(), request.getEndRow());
+
+        int lastRow = completeBlock(block, results.size(),
+                results.isEmpty() ? null : results.get(0), results.isEmpty() ? null : results.get(results.size() - 1), parallelCount);
+
+
+        // --- Format Results for AG Grid Response ---
+        Timer.Sample formatTimer = metrics.start();
+        List<Map<String, Object>> rowsThisPage = formatResults(results, request, block.isGroupingRequest(), block.isRequestForLeafDataUnderGroup(), block.currentGroupingLevel(), block.aliases());
+        metrics.recordPhase(formatTimer, SsrmMetrics.PHASE_FORMAT, request);
+        metrics.rowsReturned(request, rowsThisPage.size());
+
+        // AG Grid v22 SSRM handles the scrollbar based on lastRow. If lastRow = total, it works.
+        // With countMode UNKNOWN/ESTIMATE we return -1 (infinite scroll) or the planner's estimate until
+        // the block containing the last row is served, at which point the exact value is known for free.
+
+
+        logger.debug("Responding with {} rows, lastRow={}", rowsThisPage.size(), lastRow);
+        ServerSideGetRowsResponse response = new ServerSideGetRowsResponse(rowsThisPage, lastRow);
+        if (block.pivotKeys() != null) {
+            // Tells AG Grid which secondary (pivot result) columns to create
+            response.setPivotResultFields(pivotResultFields(block.pivotKeys(), pivotValueCols(request)));
+        }
+        if (useBlockCache) {
+            blockCache.put(request, response, blockGeneration);
+        }
+        return response;
+    }
+
+    /**
+     * Serves several SSRM block requests (e.g. concurrent blocks of one grid, or the grids of a dashboard) in one
+     * call. Blocks of the same view (filters, sort, grouping, group keys) whose row ranges overlap or touch are
+     * fetched with one range query and split again. Each such run has its own read-only transaction, so a failing
+     * run (which aborts its PostgreSQL transaction) only fails its own requests.
+     * @param requests The block requests.
+     * @return One result per request, in request order: the block, or the error of its run.
+     */
+    public List<SsrmBatchResult> getDataBatch(List<ServerSideGetRowsRequest> requests) {
+        SsrmBatchResult[] responses = new SsrmBatchResult[requests.size()];
+
+        // Group the request indexes by view, keeping request order within a view
+        Map<String, List<Integer>> byView = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            byView.computeIfAbsent(SsrmRequests.viewSignature(requests.get(i)), k -> new ArrayList<>()).add(i);
+        }
+
+        for (List<Integer> indexes : byView.values()) {
+            indexes.sort(Comparator.comparingInt(i -> requests.get(i).getStartRow()));
+            List<Integer> run = new ArrayList<>();
+            int runStart = 0;
+            int runEnd = 0;
+            for (int index : indexes) {
+                ServerSideGetRowsRequest request = requests.get(index);
+                boolean extendsRun = !run.isEmpty() && request.getStartRow() <= runEnd
+                        && Math.max(runEnd, request.getEndRow()) - runStart <= maxMergedBatchRows;
+                if (!extendsRun) {
+                    serveMergedRun(requests, run, runStart, runEnd, responses);
+                    run.clear();
+                    runStart = request.getStartRow();
+                    runEnd = request.getEndRow();
+                }
+                run.add(index);
+                runEnd = Math.max(runEnd, request.getEndRow());
+            }
+            serveMergedRun(requests, run, runStart, runEnd, responses);
+        }
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * Fetches the rows startRow..endRow of one view with a single getData call and cuts them into the responses
+     * of the individual requests of the run. If that fails, every request of the run gets the error.
+     */
+    private void serveMergedRun(List<ServerSideGetRowsRequest> requests, List<Integer> run, int startRow, int endRow,
+                                SsrmBatchResult[] responses) {
+        if (run.isEmpty()) {
+            return;
+        }
+        TransactionTemplate runTransaction = new TransactionTemplate(transactionManager);
+        runTransaction.setReadOnly(true);
+        try {
+            runTransaction.executeWithoutResult(status -> serveMergedRunInTransaction(requests, run, startRow, endRow, responses));
+        } catch (RuntimeException e) {
+            logger.error("Error serving batched blocks {}-{} of one view", startRow, endRow, e);
+            for (int index : run) {
+                responses[index] = SsrmBatchResult.failed("Failed to load rows " + requests.get(index).getStartRow() + "-" + requests.get(index).getEndRow());
+            }
+        }
+    }
+
+    private void serveMergedRunInTransaction(List<ServerSideGetRowsRequest> requests, List<Integer> run, int startRow, int endRow,
+                                             SsrmBatchResult[] responses) {
+        if (run.size() == 1) {
+            responses[run.get(0)] = SsrmBatchResult.of(getData(requests.get(run.get(0))));
+            return;
+        }
+
+        // Deep copy through Jackson with the merged range, the DTO is what the grid posts as JSON anyway
+        ServerSideGetRowsRequest merged = objectMapper.convertValue(requests.get(run.get(0)), ServerSideGetRowsRequest.class);
+        merged.setStartRow(startRow);
+        merged.setEndRow(endRow);
+        long blockGeneration = blockCache.generation();
+        // The merged range is not a block the grid asks for; only the per-request blocks cut from it are cached.
+        // Its keyset anchor (at endRow) is the one the run's last block would remember itself.
+        ServerSideGetRowsResponse mergedResponse = getData(merged, false);
+        logger.debug("Served {} batched blocks of one view with a single range {}-{}", run.size(), startRow, endRow);
+
+        List<Map<String, Object>> rows = mergedResponse.getRows();
+        for (int index : run) {
+            ServerSideGetRowsRequest request = requests.get(index);
+            int from = Math.min(request.getStartRow() - startRow, rows.size());
+            int to = Math.min(request.getEndRow() - startRow, rows.size());
+            // Same view, so the merged lastRow applies to every block of the run
+            ServerSideGetRowsResponse response = new ServerSideGetRowsResponse(new ArrayList<>(rows.subList(from, to)), mergedResponse.getLastRow());
+            response.setPivotResultFields(mergedResponse.getPivotResultFields());
+            blockCache.put(request, response, blockGeneration);
+            responses[index] = SsrmBatchResult.of(response);
+        }
+    }
+
+    /**
+     * Streaming variant of getData: the block is read with a forward-only cursor and every row is handed
+     * to the writer as soon as it is read, so no per-row maps are built before the rows are written. lastRow
+     * is only known once all rows are read, so it is written last. With the block cache enabled the raw tuples
+     * are also kept (a block is at most endRow - startRow rows) and the block is cached after the response is
+     * finished, so the UI's streamed requests fill the cache like getData does.
+     * @param request The SSRM request DTO.
+     * @param writer Receives the rows and, at the end, lastRow.
+     * @throws IOException If writing to the writer fails.
+     */
+    @SuppressWarnings("unchecked")
+    @Transactional(readOnly = true)
+    public void streamData(ServerSideGetRowsRequest request, SsrmRowWriter writer) throws IOException {
+        logger.debug("Received streaming AG Grid SSRM request: startRow={}, endRow={}, groupKeys={}",
+                request.getStartRow(), request.getEndRow(), request.getGroupKeys());
+
+        long blockGeneration = blockCache.generation();
+        ServerSideGetRowsResponse cachedResponse = blockCache.get(request);
+        metrics.cacheLookup(SsrmMetrics.CACHE_BLOCK, cachedResponse != null);
+        if (cachedResponse != null) {
+            metrics.rowsReturned(request, cachedResponse.getRows().size());
+            for (Map<String, Object> row : cachedResponse.getRows()) {
+                writer.writeRow(new ArrayList<>(row.keySet()), row.values().toArray());
+            }
+            writer.finish(cachedResponse.getLastRow(), cachedResponse.getPivotResultFields());
+            return;
+        }
+
+        BlockQuery block = prepareBlockQuery(request);
+        CompletableFuture<Long> parallelCount = startParallelCount(block);
+        int fetched = 0;
+        Object[] firstRow = null;
+        Object[] lastRow = null;
+        List<Object[]> blockRows = blockCache.isEnabled() ? new ArrayList<>() : null;
+        // Reading and writing are interleaved here, so this is timed as one "stream" phase
+        Timer.Sample streamTimer = metrics.start();
+        // FORWARD_ONLY + fetch size lets the JDBC driver stream the rows instead of materializing the result set.
+        // Tuple queries load no entities, so the persistence context does not grow while scrolling either.
+        try (ScrollableResults<Object[]> cursor = block.query().unwrap(Query.class)
+                .setFetchSize(streamFetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (cursor.next()) {
+                Object[] row = cursor.get();
+                if (firstRow == null) {
+                    // Holds the COUNT(*) OVER() total when the window count is used
+                    firstRow = row;
+                }
+                lastRow = row;
+                writer.writeRow(block.aliases(), row);
+                if (blockRows != null) {
+                    blockRows.add(row);
+                }
+                fetched++;
+            }
+        }
+        metrics.recordPhase(streamTimer, SsrmMetrics.PHASE_STREAM, request);
+        metrics.rowsReturned(request, fetched);
+        logger.debug("Streamed {} rows for range {}-{}", fetched, request.getStartRow(), request.getEndRow());
+
+        int total = completeBlock(block, fetched, firstRow, lastRow, parallelCount);
+        List<String> pivotResultFields = block.pivotKeys() != null ? pivotResultFields(block.pivotKeys(), pivotValueCols(request)) : null;
+        writer.finish(total, pivotResultFields);
+
+        if (blockRows != null) {
+            // Same rows as getData would have cached for this block
+            List<Map<String, Object>> rows = formatResults(blockRows, request, block.isGroupingRequest(), block.isRequestForLeafDataUnderGroup(), block.currentGroupingLevel(), block.aliases());
+            ServerSideGetRowsResponse response = new ServerSideGetRowsResponse(rows, total);
+            response.setPivotResultFields(pivotResultFields);
+            blockCache.put(request, response, blockGeneration);
+        }
+    }
+
+    /**
+     * Export variant of streamData: writes every leaf row matching the request's filters (and group keys, if
+     * the export starts below a group) in the request's sort order, ignoring the row range. This runs as one
+     * forward-only cursor over one query, i.e. a single scan, instead of a paged query and count per block.
+     * The literal predicates are used rather than a compiled plan since each export runs its query once.
+     * @param request The SSRM request DTO (filterModel, sortModel, rowGroupCols/groupKeys).
+     * @param writer Receives the rows and, at the end, the number of rows written as lastRow.
+     * @param progress Called with the number of rows written so far, every employee.ssrm.export.progress-interval rows.
+     * @return The number of rows written.
+     * @throws IOException If writing to the writer fails.
+     */
+    @SuppressWarnings("unchecked")
+    @Transactional(readOnly = true)
+    public long exportData(ServerSideGetRowsRequest request, SsrmRowWriter writer, LongConsumer progress) throws IOException {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        // Leaf rows only: under a group key path when one is given, otherwise the whole filtered table
+        CriteriaQuery<Object[]> exportQuery = buildDataQuery(cb, request, root -> buildWherePredicates(cb, root, request),
+                false, false, 0, null, false, null);
+        List<String> aliases = new ArrayList<>(LEAF_FIELDS);
+
+        long written = 0;
+        Timer.Sample streamTimer = metrics.start();
+        try (ScrollableResults<Object[]> cursor = entityManager.createQuery(exportQuery).unwrap(Query.class)
+                .setFetchSize(streamFetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (cursor.next()) {
+                writer.writeRow(aliases, cursor.get());
+                written++;
+                if (written % exportProgressInterval == 0) {
+                    progress.accept(written);
+                }
+            }
+        }
+        metrics.recordPhase(streamTimer, SsrmMetrics.PHASE_EXPORT, request);
+        progress.accept(written);
+        writer.finish((int) Math.min(written, Integer.MAX_VALUE), null);
+        logger.debug("Exported {} rows", written);
+        return written;
+    }
+
+    /**
+     * Resolves everything needed to fetch one block: request flags, WHERE clause (compiled plan or literal
+     * predicates), keyset anchor, window count, pivot keys, and the prepared, bound and paged data query.
+     * @param request The SSRM request DTO.
+     * @return The block query, ready to execute.
+     */
+    private BlockQuery prepareBlockQuery(ServerSideGetRowsRequest request) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        // Counts and anchors derived from this block are only cached if the table did not change in between
+        long rowCountGeneration = rowCountCache.generation();
+        long anchorGeneration = keysetAnchorCache.generation();
 
         // --- Determine the nature of the request (Grouping vs. Data) ---
         boolean isGroupingRequest = !CollectionUtils.isEmpty(request.getRowGroupCols());
@@ -43,15 +486,534 @@ public class EmployeeService {
         int maxGroupingLevel = isGroupingRequest ? request.getRowGroupCols().size() : 0;
         // Are we requesting the actual employee rows under the deepest group?
         boolean isRequestForLeafDataUnderGroup = isGroupingRequest && currentGroupingLevel == maxGroupingLevel;
+        boolean isLeafQuery = !isGroupingRequest || isRequestForLeafDataUnderGroup;
+
+
+        // --- Resolve the WHERE clause (Filters + Group Key Filters) ---
+        // With a compiled filter plan the predicates reference named parameters and only the values are bound per request.
+        Map<String, Object> filterBindings = new HashMap<>();
+        Timer.Sample predicateTimer = metrics.start();
+        FilterPlan filterPlan = resolveFilterPlan(request, filterBindings);
+        metrics.recordPhase(predicateTimer, SsrmMetrics.PHASE_PREDICATE_BUILD, request);
+        // The data and count queries each have their own Root, so predicates are built per root
+        Function<Root<Employee>, List<Predicate>> wherePredicates = filterPlan != null
+                ? r -> filterPlan.toPredicates(cb, r)
+                : r -> buildWherePredicates(cb, r, request);
+
+
+        // --- Keyset (seek) pagination for leaf data ---
+        // If we served the block directly before this one, we know the sort-key tuple of its last row
+        // and can seek past it instead of making the database scan and discard startRow rows.
+        String viewSignature = null;
+        List<SortKey> sortKeys = null;
+        Object[] anchor = null;
+        Map<String, Object> seekBindings = new HashMap<>();
+        if (keysetPaginationEnabled && isLeafQuery) {
+            sortKeys = resolveLeafSortKeys(request.getSortModel(), LEAF_FIELDS);
+            if (sortKeys != null) {
+                viewSignature = SsrmRequests.viewSignature(request);
+                anchor = request.getStartRow() > 0 ? keysetAnchorCache.find(viewSignature, request.getStartRow()) : null;
+                if (request.getStartRow() > 0) {
+                    metrics.cacheLookup(SsrmMetrics.CACHE_KEYSET_ANCHOR, anchor != null);
+                }
+                if (anchor != null) {
+                    for (int i = 0; i < anchor.length; i++) {
+                        seekBindings.put(SEEK_PARAM_PREFIX + i, anchor[i]);
+                    }
+                    logger.debug("Using keyset seek for startRow={} on view {}", request.getStartRow(), viewSignature);
+                }
+            }
+        }
+
+        // --- Single-query total via COUNT(...) OVER() ---
+        // The window is evaluated before LIMIT/OFFSET, so every returned row carries the total for the level.
+        // Not used with a keyset seek (it would count only the rows after the anchor) or when the count is already cached.
+        String filterSignature = SsrmRequests.filterSignature(request);
+        boolean useWindowCount = singleQueryCountEnabled && countMode == CountMode.EXACT && anchor == null
+                && rowCountCache.get(filterSignature) == null && supportsWindowFunctions()
+                && cb instanceof HibernateCriteriaBuilder;
+
+
+        // --- Pivot mode: discover the pivot keys that become result columns ---
+        // AG Grid only pivots grouped data; the deepest group level has no leaf rows in pivot mode.
+        boolean isPivotRequest = request.isPivotMode() && !CollectionUtils.isEmpty(request.getPivotCols())
+                && !CollectionUtils.isEmpty(request.getValueCols()) && isGroupingRequest && !isRequestForLeafDataUnderGroup;
+        List<List<Object>> pivotKeys = isPivotRequest ? resolvePivotKeys(cb, request) : null;
+
+
+        Map<String, Object> pivotBindings = pivotKeys != null ? pivotKeyBindings(pivotKeys) : Map.of();
+
+
+        // --- Build (or reuse the compiled) data query ---
+        // Pivot key values are parameters; only the number of combinations and which keys are NULL shape the query
+        String dataQueryShape = filterPlan == null ? null : "data|" + filterPlan.shapeKey() + '|' + SsrmRequests.structureSignature(request)
+                + "|seek:" + (anchor != null ? anchor.length : 0) + "|win:" + useWindowCount + "|pk:" + pivotKeyShape(pivotKeys);
+        List<SortKey> seekKeys = anchor != null ? sortKeys : null;
+        Timer.Sample queryBuildTimer = metrics.start();
+        PreparedQuery<Object[]> preparedDataQuery = prepareQuery(dataQueryShape,
+                () -> buildDataQuery(cb, request, wherePredicates, isGroupingRequest, isRequestForLeafDataUnderGroup, currentGroupingLevel, seekKeys, useWindowCount, pivotKeys),
+                Object[].class);
+        metrics.recordPhase(queryBuildTimer, SsrmMetrics.PHASE_QUERY_BUILD, request);
+        bindAll(preparedDataQuery.query(), filterBindings);
+        bindAll(preparedDataQuery.query(), seekBindings);
+        bindAll(preparedDataQuery.query(), pivotBindings);
+        // formatResults() only reads the row columns, the window total (if any) is the extra last column
+        List<String> aliases = useWindowCount
+                ? preparedDataQuery.aliases().subList(0, preparedDataQuery.aliases().size() - 1)
+                : preparedDataQuery.aliases();
+        if (pivotKeys != null) {
+            // Rows are read and written under the pivot result field names AG Grid expects
+            aliases = toPivotResultFields(aliases, pivotResultFields(pivotKeys, pivotValueCols(request)));
+        }
+
+        // --- Apply Pagination ---
+        TypedQuery<Object[]> typedDataQuery = preparedDataQuery.query();
+        // With a keyset anchor the seek predicate already skips the previous rows, otherwise fall back to OFFSET
+        typedDataQuery.setFirstResult(anchor != null ? 0 : request.getStartRow());
+        // Calculate page size: AG Grid sends endRow, we need count = endRow - startRow
+        int pageSize = request.getEndRow() - request.getStartRow();
+        if (pageSize <= 0) pageSize = 100; // Prevent infinite loop or error if start/end are same or invalid
+        typedDataQuery.setMaxResults(pageSize);
+
+        return new BlockQuery(request, cb, typedDataQuery, aliases, pageSize, isGroupingRequest, isRequestForLeafDataUnderGroup,
+                currentGroupingLevel, isLeafQuery, filterPlan, wherePredicates, filterBindings, filterSignature,
+                viewSignature, sortKeys, useWindowCount, pivotKeys, rowCountGeneration, anchorGeneration);
+    }
+
+    /**
+     * Returns one page of the distinct values of a column, for AG Grid's set filter. The values respect all
+     * active filters except the column's own (as AG Grid's SSRM set filter expects) and ignore group keys.
+     * The full sorted value list is cached per (column, other filters) in the DistinctValueCache; search and
+     * paging are applied to the cached list, so typing in the filter's search box does not hit the database.
+     * If the cached list is truncated (employee.ssrm.values.max-values), a search could miss values past the
+     * cut-off, so it runs as a query instead (see searchDistinctValues).
+     * @param field The entity field (column) name.
+     * @param request Carries the grid's current filterModel; may be null.
+     * @param search Case-insensitive substring the values must contain, or null/empty for all values.
+     * @param offset Index of the first value to return.
+     * @param limit Maximum number of values to return.
+     * @return The requested page of values.
+     * @throws IllegalArgumentException If the field is not a column of the employee entity.
+     */
+    @Transactional(readOnly = true)
+    public DistinctValuesPage getDistinctValues(String field, ServerSideGetRowsRequest request, String search, int offset, int limit) {
+        // Only plain columns of the entity may be used, the name comes straight from the URL
+        Attribute<? super Employee, ?> attribute = entityManager.getMetamodel().entity(Employee.class).getAttributes().stream()
+                .filter(a -> a.getName().equals(field))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown column: " + field));
+        if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+            throw new IllegalArgumentException("Column does not support a set filter: " + field);
+        }
+
+        String signature = SsrmRequests.valuesSignature(request, field);
+        long valuesGeneration = distinctValueCache.generation();
+        DistinctValueCache.Values values = distinctValueCache.get(signature);
+        if (values == null) {
+            values = loadDistinctValues(field, request);
+            distinctValueCache.put(signature, values, valuesGeneration);
+        }
+
+        if (StringUtils.hasText(search) && values.truncated()) {
+            return searchDistinctValues(field, request, search, offset, limit);
+        }
+
+        List<Object> matching = values.values();
+        if (StringUtils.hasText(search)) {
+            String lowerSearch = search.toLowerCase();
+            matching = new ArrayList<>();
+            for (Object value : values.values()) {
+                if (value != null && value.toString().toLowerCase().contains(lowerSearch)) {
+                    matching.add(value);
+                }
+            }
+        }
+        int from = Math.min(Math.max(offset, 0), matching.size());
+        int to = Math.min(from + Math.max(limit, 0), matching.size());
+        return new DistinctValuesPage(new ArrayList<>(matching.subList(from, to)), matching.size(), values.truncated());
+    }
+
+    /**
+     * Searches a column's distinct values in the database: SELECT DISTINCT field ... WHERE lower(cast(field as text))
+     * LIKE %search% ... ORDER BY field with OFFSET/LIMIT, plus a COUNT(DISTINCT) for the total. The cast matches the
+     * toString() the in-memory search uses (ISO dates, plain numbers). NULL never matches a search.
+     */
+    private DistinctValuesPage searchDistinctValues(String field, ServerSideGetRowsRequest request, String search, int offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        String pattern = "%" + search.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        Function<Root<Employee>, List<Predicate>> searchPredicates = root -> {
+            List<Predicate> predicates = request != null ? buildWherePredicates(cb, root, request, false, field) : new ArrayList<>();
+            predicates.add(cb.like(cb.lower(root.get(field).as(String.class)), pattern, '\\'));
+            return predicates;
+        };
+
+        CriteriaQuery<Object> valuesQuery = cb.createQuery(Object.class);
+        Root<Employee> root = valuesQuery.from(Employee.class);
+        Path<Object> path = root.get(field);
+        valuesQuery.select(path).distinct(true).where(searchPredicates.apply(root).toArray(new Predicate[0])).orderBy(cb.asc(path));
+        List<Object> page = entityManager.createQuery(valuesQuery)
+                .setFirstResult(Math.max(offset, 0))
+                .setMaxResults(Math.max(limit, 0))
+                .getResultList();
 
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<Employee> countRoot = countQuery.from(Employee.class);
+        countQuery.select(cb.countDistinct(countRoot.get(field))).where(searchPredicates.apply(countRoot).toArray(new Predicate[0]));
+        long total = entityManager.createQuery(countQuery).getSingleResult();
+        logger.debug("Searched distinct values of '{}' in the database: {} matches", field, total);
+        return new DistinctValuesPage(new ArrayList<>(page), (int) Math.min(total, Integer.MAX_VALUE), false);
+    }
+
+    /**
+     * Runs SELECT DISTINCT field ... ORDER BY field NULLS FIRST with all filters except the field's own.
+     */
+    private DistinctValueCache.Values loadDistinctValues(String field, ServerSideGetRowsRequest request) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object> valuesQuery = cb.createQuery(Object.class);
+        Root<Employee> root = valuesQuery.from(Employee.class);
+        Path<Object> path = root.get(field);
+        if (request != null) {
+            List<Predicate> predicates = buildWherePredicates(cb, root, request, false, field);
+            if (!predicates.isEmpty()) {
+                valuesQuery.where(cb.and(predicates.toArray(new Predicate[0])));
+            }
+        }
+        // PostgreSQL sorts NULL last ascending; (Blanks) goes first in the set filter list and must survive the truncation
+        valuesQuery.select(path).distinct(true).orderBy(cb instanceof HibernateCriteriaBuilder hcb ? hcb.asc(path, true) : cb.asc(path));
+
+        // Fetch one more than allowed so we can tell whether the list was truncated
+        List<Object> rows = entityManager.createQuery(valuesQuery).setMaxResults(maxDistinctValues + 1).getResultList();
+        boolean truncated = rows.size() > maxDistinctValues;
+        if (truncated) {
+            logger.warn("Column '{}' has more than {} distinct values, the set filter list is truncated", field, maxDistinctValues);
+            rows = rows.subList(0, maxDistinctValues);
+        }
+        logger.debug("Loaded {} distinct values for '{}'", rows.size(), field);
+        return new DistinctValueCache.Values(rows, truncated);
+    }
+
+    /**
+     * Returns several group levels below the request's groupKeys in one round trip, e.g. all departments with
+     * all their job titles for an "expand all" dashboard. A single query groups by every requested level at once
+     * (GROUP BY department, jobTitle ORDER BY department, jobTitle); the upper levels are rolled up in memory
+     * from that ordered result, so no per-node GROUP BY or COUNT DISTINCT is needed.
+     * Every level is ordered by its group column, descending if the sortModel sorts that column descending.
+     * Other sortModel entries (value columns, leaf columns) are ignored, since the levels are built from one
+     * ordered result; clients that need them sort the returned siblings themselves.
+     * @param request The SSRM request DTO: rowGroupCols, groupKeys of the parent node, filterModel, valueCols, sortModel.
+     * @param depth Number of group levels to return below the parent node (capped at the remaining levels).
+     * @return The nested groups.
+     */
+    @Transactional(readOnly = true)
+    public GroupTree getGroupTree(ServerSideGetRowsRequest request, int depth) {
+        List<ServerSideGetRowsRequest.ColumnVO> rowGroupCols = request.getRowGroupCols();
+        if (CollectionUtils.isEmpty(rowGroupCols)) {
+            throw new IllegalArgumentException("A group tree needs rowGroupCols");
+        }
+        int firstLevel = CollectionUtils.isEmpty(request.getGroupKeys()) ? 0 : request.getGroupKeys().size();
+        int lastLevel = Math.min(firstLevel + Math.max(depth, 1), rowGroupCols.size()) - 1;
+        if (firstLevel > lastLevel) {
+            throw new IllegalArgumentException("groupKeys already address the deepest group level");
+        }
+        List<ServerSideGetRowsRequest.ColumnVO> valueCols = request.getValueCols() != null ? request.getValueCols() : List.of();
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> treeQuery = cb.createQuery(Object[].class);
+        Root<Employee> root = treeQuery.from(Employee.class);
+        // Filters plus the parent node's group keys
+        List<Predicate> predicates = buildWherePredicates(cb, root, request);
+        if (!predicates.isEmpty()) {
+            treeQuery.where(cb.and(predicates.toArray(new Predicate[0])));
+        }
 
-        // --- Build the base query for data fetching ---
+        List<Selection<?>> selections = new ArrayList<>();
+        List<Expression<?>> groupBy = new ArrayList<>();
+        List<Order> orderBy = new ArrayList<>();
+        for (int level = firstLevel; level <= lastLevel; level++) {
+            String field = rowGroupCols.get(level).getField();
+            Path<?> groupPath = root.get(field);
+            selections.add(groupPath);
+            groupBy.add(groupPath);
+            orderBy.add(isSortedDescending(request.getSortModel(), field) ? cb.desc(groupPath) : cb.asc(groupPath));
+        }
+        if (request.getSortModel() != null) {
+            for (ServerSideGetRowsRequest.SortModel sm : request.getSortModel()) {
+                boolean isTreeLevel = rowGroupCols.subList(firstLevel, lastLevel + 1).stream().anyMatch(col -> col.getField().equals(sm.getColId()));
+                if (!isTreeLevel) {
+                    logger.debug("Group tree only sorts by its group columns, sort on '{}' ignored", sm.getColId());
+                }
+            }
+        }
+        selections.add(cb.count(root));
+        // Per value column: its aggregate at the deepest level. avg cannot be rolled up from averages,
+        // so it is selected as sum and count and divided after the roll-up.
+        List<ServerSideGetRowsRequest.ColumnVO> rollupCols = new ArrayList<>();
+        for (ServerSideGetRowsRequest.ColumnVO valueCol : valueCols) {
+            Path<?> path = root.get(valueCol.getField());
+            if ("avg".equals(valueCol.getAggFunc())) {
+                Expression<?> sum = aggregate(cb, path, path.getJavaType(), "sum");
+                if (sum == null) {
+                    logger.warn("Unsupported aggregation 'avg' on column '{}', ignored", valueCol.getField());
+                    continue;
+                }
+                selections.add(sum);
+                selections.add(cb.count(path));
+            } else {
+                Expression<?> aggregate = aggregate(cb, path, path.getJavaType(), valueCol.getAggFunc());
+                if (aggregate == null) {
+                    logger.warn("Unsupported aggregation '{}' on column '{}', ignored", valueCol.getAggFunc(), valueCol.getField());
+                    continue;
+                }
+                selections.add(aggregate);
+            }
+            rollupCols.add(valueCol);
+        }
+        treeQuery.multiselect(selections).groupBy(groupBy).orderBy(orderBy);
+
+        List<Object[]> rows = entityManager.createQuery(treeQuery).setMaxResults(maxGroupTreeGroups + 1).getResultList();
+        boolean truncated = rows.size() > maxGroupTreeGroups;
+        if (truncated) {
+            logger.warn("Group tree below {} has more than {} groups, truncated", request.getGroupKeys(), maxGroupTreeGroups);
+            rows = rows.subList(0, maxGroupTreeGroups);
+        }
+
+        // Build the tree from the ordered rows; LinkedHashMaps keep the database order of siblings
+        int levels = lastLevel - firstLevel + 1;
+        GroupAccumulator top = new GroupAccumulator(null, null, rollupCols.size());
+        for (Object[] row : rows) {
+            GroupAccumulator node = top;
+            for (int i = 0; i < levels; i++) {
+                String field = rowGroupCols.get(firstLevel + i).getField();
+                Object key = row[i];
+                node = node.children.computeIfAbsent(key, k -> new GroupAccumulator(field, k, rollupCols.size()));
+            }
+            // node is now the deepest-level group of this row
+            int column = levels;
+            node.count = ((Number) row[column++]).longValue();
+            for (int c = 0; c < rollupCols.size(); c++) {
+                node.values[c] = row[column++];
+                if ("avg".equals(rollupCols.get(c).getAggFunc())) {
+                    node.avgCounts[c] = ((Number) row[column++]).longValue();
+                }
+            }
+        }
+
+        if (truncated) {
+            // The cut may fall inside the groups above the last row: their children, count and aggregates are incomplete
+            Object[] lastRow = rows.get(rows.size() - 1);
+            GroupAccumulator node = top;
+            for (int i = 0; i < levels - 1; i++) {
+                node = node.children.get(lastRow[i]);
+                node.truncated = true;
+            }
+        }
+
+        List<GroupTreeNode> nodes = new ArrayList<>(top.children.size());
+        for (GroupAccumulator child : top.children.values()) {
+            nodes.add(rollUp(child, rollupCols));
+        }
+        return new GroupTree(nodes, truncated);
+    }
+
+    // Mutable group while the tree is built; values[c] holds the aggregate (or, for avg, the sum) of rollupCols[c]
+    private static final class GroupAccumulator {
+        private final String field;
+        private final Object key;
+        private long count;
+        private boolean truncated;
+        private final Object[] values;
+        private final long[] avgCounts;
+        private final Map<Object, GroupAccumulator> children = new LinkedHashMap<>();
+
+        private GroupAccumulator(String field, Object key, int valueCount) {
+            this.field = field;
+            this.key = key;
+            this.values = new Object[valueCount];
+            this.avgCounts = new long[valueCount];
+        }
+    }
+
+    /**
+     * Converts a group into a GroupTreeNode, first rolling its children's counts and aggregates up into it
+     * (sum/count add up, min/max compare, avg = total sum / total count).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static GroupTreeNode rollUp(GroupAccumulator group, List<ServerSideGetRowsRequest.ColumnVO> rollupCols) {
+        List<GroupTreeNode> children = new ArrayList<>(group.children.size());
+        for (GroupAccumulator child : group.children.values()) {
+            GroupTreeNode childNode = rollUp(child, rollupCols);
+            children.add(childNode);
+            group.count += child.count;
+            for (int c = 0; c < rollupCols.size(); c++) {
+                Object childValue = child.values[c];
+                Object value = group.values[c];
+                switch (rollupCols.get(c).getAggFunc()) {
+                    case "min" -> group.values[c] = value == null || (childValue != null && ((Comparable) childValue).compareTo(value) < 0) ? childValue : value;
+                    case "max" -> group.values[c] = value == null || (childValue != null && ((Comparable) childValue).compareTo(value) > 0) ? childValue : value;
+                    // sum, count, and the sum part of avg
+                    default -> group.values[c] = addNumbers((Number) value, (Number) childValue);
+                }
+                group.avgCounts[c] += child.avgCounts[c];
+            }
+        }
+
+        Map<String, Object> aggregates = new LinkedHashMap<>();
+        for (int c = 0; c < rollupCols.size(); c++) {
+            ServerSideGetRowsRequest.ColumnVO valueCol = rollupCols.get(c);
+            Object value = group.values[c];
+            if ("avg".equals(valueCol.getAggFunc())) {
+                value = value == null || group.avgCounts[c] == 0 ? null : ((Number) value).doubleValue() / group.avgCounts[c];
+            }
+            aggregates.put(valueCol.getField(), value);
+        }
+        return new GroupTreeNode(group.field, group.key, group.count, aggregates, children, group.truncated);
+    }
+
+    private static Number addNumbers(Number a, Number b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a instanceof BigDecimal || b instanceof BigDecimal) {
+            return new BigDecimal(a.toString()).add(new BigDecimal(b.toString()));
+        }
+        if (a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float) {
+            return a.doubleValue() + b.doubleValue();
+        }
+        return a.longValue() + b.longValue();
+    }
+
+    private static boolean isSortedDescending(List<ServerSideGetRowsRequest.SortModel> sortModel, String field) {
+        return sortModel != null && sortModel.stream().anyMatch(sm -> field.equals(sm.getColId()) && "desc".equalsIgnoreCase(sm.getSort()));
+    }
+
+    /**
+     * Starts the count query for a block on the ssrmCountExecutor, in its own read-only transaction (and so on
+     * its own connection), if parallel counting is enabled and a count query will probably be needed.
+     * @param block The prepared block query.
+     * @return The running count, or null if the count is not run in parallel.
+     */
+    private CompletableFuture<Long> startParallelCount(BlockQuery block) {
+        // Nothing to overlap if the total comes from the window column, the cache, or no count is run at all
+        if (!parallelCountEnabled || countMode != CountMode.EXACT || block.useWindowCount()
+                || rowCountCache.get(block.filterSignature()) != null) {
+            return null;
+        }
+        // The request thread's transaction (and its EntityManager) is bound to that thread, the count gets its own
+        TransactionTemplate countTransaction = new TransactionTemplate(transactionManager);
+        countTransaction.setReadOnly(true);
+        countTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Cancelling the future does not stop the query; the transaction timeout ends it on the database as well
+        countTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(parallelCountTimeoutMs + 999)));
+        try {
+            return CompletableFuture.supplyAsync(() -> countTransaction.execute(status ->
+                    resolveLastRow(block.cb(), block.request(), block.filterPlan(), block.wherePredicates(), block.filterBindings(), block.isLeafQuery(),
+                            block.rowCountGeneration())),
+                    countExecutor);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Count executor saturated, counting on the request thread");
+            return null;
+        }
+    }
+
+    /**
+     * Waits up to employee.ssrm.parallel-count.timeout-ms for a count started by startParallelCount.
+     * @return The count, or -1 (unknown) if the count failed or timed out.
+     */
+    private long joinParallelCount(CompletableFuture<Long> parallelCount) {
+        try {
+            Long count = parallelCount.get(parallelCountTimeoutMs, TimeUnit.MILLISECONDS);
+            return count != null ? count : -1;
+        } catch (TimeoutException e) {
+            logger.warn("Parallel count query did not finish within {} ms, lastRow unknown", parallelCountTimeoutMs);
+            parallelCount.cancel(true);
+            return -1;
+        } catch (ExecutionException e) {
+            logger.error("Error executing parallel count query", e.getCause());
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            parallelCount.cancel(true);
+            return -1;
+        }
+    }
+
+    /**
+     * Post-processing after a block has been read: remembers the keyset anchor for the next block and
+     * determines lastRow (from a short block, the window total, the count cache, or a count query).
+     * @param block The executed block query.
+     * @param fetched Number of rows the data query returned.
+     * @param firstRow The first row returned, or null if none.
+     * @param lastFetchedRow The last row returned, or null if none.
+     * @param parallelCount The count query started by startParallelCount, or null to count on this thread if needed.
+     * @return The lastRow for the AG Grid response.
+     */
+    private int completeBlock(BlockQuery block, int fetched, Object[] firstRow, Object[] lastFetchedRow, CompletableFuture<Long> parallelCount) {
+        ServerSideGetRowsRequest request = block.request();
+
+        // Remember where this block ended so the next block can seek from here
+        if (block.sortKeys() != null && fetched == block.pageSize()) {
+            Object[] lastKey = extractSortKeyTuple(lastFetchedRow, block.sortKeys(), block.aliases());
+            if (lastKey != null) {
+                keysetAnchorCache.remember(block.viewSignature(), request.getStartRow() + fetched, lastKey, block.anchorGeneration());
+            }
+        }
+
+
+        // --- Determine lastRow ---
+        // If we fetched less than the requested page size, this block contains the last row and
+        // startRow + fetched IS the total, so no COUNT query is needed at all.
+        // (An empty block past row 0 does not tell us where the end is, so it is not trusted.)
+        int lastRow;
+        boolean reachedEnd = fetched < block.pageSize() && (fetched > 0 || request.getStartRow() == 0);
+        if (reachedEnd) {
+            // A parallel count (if any) is not waited for; it finishes on its own and caches the same value
+            lastRow = request.getStartRow() + fetched;
+            rowCountCache.put(block.filterSignature(), lastRow, block.rowCountGeneration());
+        } else if (block.useWindowCount() && firstRow != null) {
+            lastRow = ((Number) firstRow[block.aliases().size()]).intValue();
+            rowCountCache.put(block.filterSignature(), lastRow, block.rowCountGeneration());
+        } else if (parallelCount != null) {
+            lastRow = (int) joinParallelCount(parallelCount);
+        } else {
+            // This query needs to apply the SAME predicates as the data query (without the keyset seek)
+            lastRow = (int) resolveLastRow(block.cb(), request, block.filterPlan(), block.wherePredicates(), block.filterBindings(), block.isLeafQuery(),
+                    block.rowCountGeneration());
+        }
+        logger.debug("lastRow for the current level/filters: {} (countMode={})", lastRow, countMode);
+        return lastRow;
+    }
+
+    /**
+     * Builds the Criteria data query (SELECT, WHERE, GROUP BY, ORDER BY) for the requested level.
+     * When a filter plan is used, everything value-dependent is a named parameter, so the result only
+     * depends on the query shape and can be rendered once and cached by the PredicatePlanCache.
+     * @param cb CriteriaBuilder instance.
+     * @param request The SSRM request DTO.
+     * @param wherePredicates Builds the WHERE predicates for a root.
+     * @param isGroupingRequest True if the request involves grouping.
+     * @param isRequestForLeafDataUnderGroup True if requesting leaf data under the deepest group.
+     * @param currentGroupingLevel The current depth of the group keys.
+     * @param seekKeys Sort keys for a keyset seek (parameters k0..kN), or null to page with OFFSET.
+     * @param useWindowCount True to append a COUNT(...) OVER() column holding the total.
+     * @param pivotKeys Pivot key combinations for a pivot mode group level, or null when not pivoting.
+     * @return The data query.
+     */
+    private CriteriaQuery<Object[]> buildDataQuery(CriteriaBuilder cb, ServerSideGetRowsRequest request, Function<Root<Employee>, List<Predicate>> wherePredicates,
+                                                   boolean isGroupingRequest, boolean isRequestForLeafDataUnderGroup, int currentGroupingLevel,
+                                                   List<SortKey> seekKeys, boolean useWindowCount, List<List<Object>> pivotKeys) {
         CriteriaQuery<Object[]> dataQuery = cb.createQuery(Object[].class); // Use Object[] to hold diverse types (group values, aggregations, entity fields)
         Root<Employee> root = dataQuery.from(Employee.class);
 
         // --- Build WHERE clause (Filters + Group Key Filters) ---
         // We need the Root to build predicates, so build them after creating the Root.
-        List<Predicate> predicates = buildWherePredicates(cb, root, request);
+        List<Predicate> predicates = new ArrayList<>(wherePredicates.apply(root));
+        if (seekKeys != null) {
+            // The seek predicate applies to the data query only, the count query keeps the original predicates
+            predicates.add(buildSeekPredicate(cb, root, seekKeys));
+        }
         if (!predicates.isEmpty()) {
             dataQuery.where(cb.and(predicates.toArray(new Predicate[0])));
         }
@@ -59,6 +1021,8 @@ public class EmployeeService {
         // --- Configure SELECT, GROUP BY, and potential Aggregations ---
         List<Selection<?>> selections = new ArrayList<>();
         List<Expression<?>> groupByExpressions = new ArrayList<>();
+        // Argument of the COUNT(...) OVER() window column: must be a grouped column for group-level queries
+        Expression<?> windowCountArgument = root.get("id");
 
         if (isGroupingRequest && !isRequestForLeafDataUnderGroup) {
             // --- This is a request for a GROUP LEVEL ---
@@ -66,14 +1030,19 @@ public class EmployeeService {
             String groupField = request.getRowGroupCols().get(currentGroupingLevel).getField();
             Path<?> groupPath = root.get(groupField);
             selections.add(groupPath.alias(groupField)); // Select the group value, use field name as alias
+            // COUNT(DISTINCT group) in getTotalRowCount() ignores NULL groups, counting the group value matches that
+            windowCountArgument = groupPath;
 
             // Add aggregation (e.g., count) for the group level. AG Grid often needs counts.
             selections.add(cb.count(root).alias("agGrid_Count")); // Count items in this group
 
-            // TODO: Add other aggregations based on request.getValueCols() if needed (e.g., SUM, AVG of salary)
-            // Example: selections.add(cb.sum(root.get("salary")).alias("sum_salary"));
-
-            dataQuery.multiselect(selections); // Use multiselect for grouping results
+            if (pivotKeys != null) {
+                // Pivot mode: one conditional aggregate per (pivot key combination, value column)
+                selections.addAll(buildPivotSelections(cb, root, request.getPivotCols(), pivotValueCols(request), pivotKeys));
+            } else {
+                // Add the aggregations requested through valueCols (e.g. SUM/AVG of salary), keyed by the value column's field
+                selections.addAll(buildAggregateSelections(cb, root, request.getValueCols()));
+            }
 
             // Group by the selected group column
             groupByExpressions.add(groupPath);
@@ -81,66 +1050,352 @@ public class EmployeeService {
 
              // AG Grid often sorts grouped rows by the group column itself by default, or by specified sort models.
              // Apply sorting based on request.sortModel, specifically handling group columns.
-            applySorting(cb, dataQuery, root, request.getSortModel(), true, request.getRowGroupCols(), selections);
+            applySorting(cb, dataQuery, root, request.getSortModel(), true, request.getRowGroupCols(), selections, currentGroupingLevel,
+                    pivotKeys != null ? pivotSelectionAliases(pivotKeys, pivotValueCols(request)) : null);
 
         } else {
             // --- This is a request for LEAF LEVEL DATA (either no grouping or under the last group) ---
-            // Select specific fields of the Employee entity
-            // Ensure the order here matches the order used when formatting results in formatResults()
-            selections.add(root.get("id").alias("id"));
-            selections.add(root.get("name").alias("name"));
-            selections.add(root.get("department").alias("department"));
-            selections.add(root.get("jobTitle").alias("jobTitle"));
-            selections.add(root.get("salary").alias("salary"));
-            selections.add(root.get("hireDate").alias("hireDate"));
-            // Add other employee fields here
-
-            dataQuery.multiselect(selections);
+            // Select specific fields of the Employee entity (see LEAF_FIELDS)
+            for (String field : LEAF_FIELDS) {
+                selections.add(root.get(field).alias(field));
+            }
 
             // Apply sorting based on request.sortModel for leaf data
-            applySorting(cb, dataQuery, root, request.getSortModel(), false, null, null);
+            applySorting(cb, dataQuery, root, request.getSortModel(), false, null, null, currentGroupingLevel, null);
         }
 
-        // --- Execute Data Query with Pagination ---
-        TypedQuery<Object[]> typedDataQuery = entityManager.createQuery(dataQuery);
-        typedDataQuery.setFirstResult(request.getStartRow());
-        // Calculate page size: AG Grid sends endRow, we need count = endRow - startRow
-        int pageSize = request.getEndRow() - request.getStartRow();
-        if (pageSize <= 0) pageSize = 100; // Prevent infinite loop or error if start/end are same or invalid
-        typedDataQuery.setMaxResults(pageSize);
+        if (useWindowCount) {
+            HibernateCriteriaBuilder hcb = (HibernateCriteriaBuilder) cb;
+            List<Selection<?>> selectionsWithTotal = new ArrayList<>(selections);
+            selectionsWithTotal.add(hcb.windowFunction("count", Long.class, hcb.createWindow(), windowCountArgument).alias(TOTAL_COUNT_ALIAS));
+            dataQuery.multiselect(selectionsWithTotal);
+        } else {
+            dataQuery.multiselect(selections); // Use multiselect for mixed result columns
+        }
+        return dataQuery;
+    }
 
-        List<Object[]> results = typedDataQuery.getResultList();
-        logger.debug("Fetched {} rows from DB for range {}-{}", results.size(), request.getStartRow(), request.getEndRow());
+    /**
+     * Builds the aggregate select items for AG Grid's valueCols on a group level query.
+     * Each aggregate is aliased with the value column's field, which is where AG Grid reads the
+     * aggregated value from and what it sends as colId when the user sorts by that column.
+     * @param cb CriteriaBuilder instance.
+     * @param root The Root of the entity (Employee).
+     * @param valueCols The value columns from the request (may be null).
+     * @return The aggregate selections, in valueCols order.
+     */
+    private List<Selection<?>> buildAggregateSelections(CriteriaBuilder cb, Root<Employee> root, List<ServerSideGetRowsRequest.ColumnVO> valueCols) {
+        List<Selection<?>> aggregates = new ArrayList<>();
+        if (CollectionUtils.isEmpty(valueCols)) {
+            return aggregates;
+        }
+        for (ServerSideGetRowsRequest.ColumnVO valueCol : valueCols) {
+            Path<?> path = root.get(valueCol.getField());
+            Expression<?> aggregate = aggregate(cb, path, path.getJavaType(), valueCol.getAggFunc());
+            if (aggregate == null) {
+                logger.warn("Unsupported aggregation '{}' on column '{}' ({}), ignored", valueCol.getAggFunc(), valueCol.getField(), path.getJavaType().getSimpleName());
+                continue;
+            }
+            aggregates.add(aggregate.alias(valueCol.getField()));
+        }
+        return aggregates;
+    }
 
+    /**
+     * Applies an AG Grid aggFunc (sum, avg, min, max, count) to an expression.
+     * @param cb CriteriaBuilder instance.
+     * @param argument The expression to aggregate (a column, or a CASE expression when pivoting).
+     * @param javaType The Java type of the argument.
+     * @param aggFunc The AG Grid aggregation function name.
+     * @return The aggregate expression, or null if the function is not supported for this type.
+     */
+    @SuppressWarnings("unchecked")
+    private static Expression<?> aggregate(CriteriaBuilder cb, Expression<?> argument, Class<?> javaType, String aggFunc) {
+        if (!isSupportedAggregation(aggFunc, javaType)) {
+            return null;
+        }
+        switch (aggFunc) {
+            case "count":
+                return cb.count(argument);
+            case "sum":
+                return cb.sum((Expression<Number>) argument);
+            case "avg":
+                return cb.avg((Expression<Number>) argument);
+            case "min":
+                // least/greatest also cover non-numeric columns such as hireDate
+                return cb.least((Expression<Comparable>) argument);
+            default:
+                return cb.greatest((Expression<Comparable>) argument);
+        }
+    }
 
-        // --- Build and Execute COUNT Query to determine lastRow ---
-        // This query needs to apply the SAME predicates as the data query
-        long totalRowCount = getTotalRowCount(cb, request, predicates);
-        logger.debug("Total row count for the current level/filters: {}", totalRowCount);
+    /**
+     * @return True if {@link #aggregate} supports the AG Grid aggFunc for a column of the given type.
+     */
+    private static boolean isSupportedAggregation(String aggFunc, Class<?> javaType) {
+        boolean isNumeric = Number.class.isAssignableFrom(javaType);
+        boolean isComparable = Comparable.class.isAssignableFrom(javaType);
+        return "count".equals(aggFunc)
+                || (("sum".equals(aggFunc) || "avg".equals(aggFunc)) && isNumeric)
+                || (("min".equals(aggFunc) || "max".equals(aggFunc)) && isComparable);
+    }
 
+    /**
+     * The value columns of a pivot request whose aggregation is supported. Pivot selections, result fields and
+     * sort aliases are all derived from this list, so an unsupported column gets no result field at all and
+     * the positions of the following ones do not shift.
+     */
+    private List<ServerSideGetRowsRequest.ColumnVO> pivotValueCols(ServerSideGetRowsRequest request) {
+        if (request.getValueCols() == null) {
+            return List.of();
+        }
+        List<ServerSideGetRowsRequest.ColumnVO> supported = new ArrayList<>(request.getValueCols().size());
+        for (ServerSideGetRowsRequest.ColumnVO valueCol : request.getValueCols()) {
+            Class<?> javaType = entityManager.getMetamodel().entity(Employee.class).getAttribute(valueCol.getField()).getJavaType();
+            if (isSupportedAggregation(valueCol.getAggFunc(), javaType)) {
+                supported.add(valueCol);
+            } else {
+                logger.debug("Unsupported aggregation '{}' on pivot value column '{}', ignored", valueCol.getAggFunc(), valueCol.getField());
+            }
+        }
+        return supported;
+    }
 
-        // --- Format Results for AG Grid Response ---
-        List<Map<String, Object>> rowsThisPage = formatResults(results, request, isGroupingRequest, isRequestForLeafDataUnderGroup, currentGroupingLevel, selections);
-
-        // Determine the lastRow value for AG Grid
-        // If the number of results + startRow is less than the total count,
-        // there are more rows after this page. Otherwise, this is the last page.
-        // AG Grid expects lastRow to be the total count matching the criteria.
-        int lastRow = (int) totalRowCount;
-        // If we fetched less than the requested page size, it means we hit the end.
-        // AG Grid can figure this out based on `lastRow`. If results.size() < pageSize and lastRow > 0,
-        // AG Grid knows the total is `lastRow` and it has fetched up to that point.
-        // If results.size() < pageSize AND (startRow + results.size() == totalRowCount),
-        // this block contains the last row.
-        // A simple approach is just to return the totalRowCount.
+    /**
+     * Builds the conditional aggregates of a pivot mode group level: for every pivot key combination and
+     * value column, AGG(CASE WHEN pivotCols = keys THEN valueCol END). All pivot columns are computed in the
+     * single grouped scan. The i-th pivot result field (see pivotResultFields) is selected as PIVOT_ALIAS_PREFIX + i,
+     * and the key values are the parameters bound from pivotKeyBindings.
+     * @param cb CriteriaBuilder instance.
+     * @param root The Root of the entity (Employee).
+     * @param pivotCols The pivot columns from the request.
+     * @param valueCols The supported value columns (see pivotValueCols).
+     * @param pivotKeys The discovered pivot key combinations (one value per pivot column each).
+     * @return The pivot selections, grouped by key combination then valueCols order.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<Selection<?>> buildPivotSelections(CriteriaBuilder cb, Root<Employee> root, List<ServerSideGetRowsRequest.ColumnVO> pivotCols,
+                                                    List<ServerSideGetRowsRequest.ColumnVO> valueCols, List<List<Object>> pivotKeys) {
+        List<Selection<?>> selections = new ArrayList<>();
+        int resultIndex = 0;
+        for (int k = 0; k < pivotKeys.size(); k++) {
+            List<Object> keys = pivotKeys.get(k);
+            List<Predicate> matchesKeys = new ArrayList<>();
+            for (int i = 0; i < pivotCols.size(); i++) {
+                Expression<?> pivotExpression = pivotExpression(cb, root, pivotCols.get(i).getField());
+                matchesKeys.add(keys.get(i) == null ? cb.isNull(pivotExpression)
+                        : cb.equal(pivotExpression, cb.parameter(pivotExpression.getJavaType(), pivotParam(k, i))));
+            }
+            Predicate condition = cb.and(matchesKeys.toArray(new Predicate[0]));
+
+            for (ServerSideGetRowsRequest.ColumnVO valueCol : valueCols) {
+                String alias = PIVOT_ALIAS_PREFIX + resultIndex++;
+                Path<?> valuePath = root.get(valueCol.getField());
+                Expression<?> conditionalValue = cb.selectCase()
+                        .when(condition, (Expression) valuePath)
+                        .otherwise(cb.nullLiteral((Class) valuePath.getJavaType()));
+                // Never null, pivotValueCols only keeps supported aggregations
+                Expression<?> aggregate = aggregate(cb, conditionalValue, valuePath.getJavaType(), valueCol.getAggFunc());
+                selections.add(aggregate.alias(alias));
+            }
+        }
+        return selections;
+    }
 
-        // AG Grid v22 SSRM handles the scrollbar based on lastRow. If lastRow = total, it works.
-        // If unsure or for very large sets, returning -1 for infinite scroll is an option,
-        // but providing the count is generally better for scrollbar accuracy.
+    /**
+     * The expression a pivot column pivots on. Date columns pivot on their year (e.g. hireDate -> 2021),
+     * anything else on the raw column value.
+     */
+    private static Expression<?> pivotExpression(CriteriaBuilder cb, Root<Employee> root, String field) {
+        Path<?> path = root.get(field);
+        if (path.getJavaType().equals(LocalDate.class)) {
+            return cb.function("year", Integer.class, path);
+        }
+        return path;
+    }
 
+    /**
+     * Returns the distinct pivot key combinations for the request's pivot columns and filters,
+     * from the PivotKeyCache or by running a SELECT DISTINCT over the filtered table.
+     * @param cb CriteriaBuilder instance.
+     * @param request The SSRM request DTO.
+     * @return Key combinations in ascending order, at most maxPivotKeys of them.
+     */
+    private List<List<Object>> resolvePivotKeys(CriteriaBuilder cb, ServerSideGetRowsRequest request) {
+        String signature = SsrmRequests.pivotKeySignature(request);
+        long keyGeneration = pivotKeyCache.generation();
+        List<List<Object>> cached = pivotKeyCache.get(signature);
+        if (cached != null) {
+            return cached;
+        }
 
-        logger.info("Responding with {} rows, lastRow={}", rowsThisPage.size(), lastRow);
-        return new ServerSideGetRowsResponse(rowsThisPage, lastRow);
+        List<ServerSideGetRowsRequest.ColumnVO> pivotCols = request.getPivotCols();
+        CriteriaQuery<Object[]> keyQuery = cb.createQuery(Object[].class);
+        Root<Employee> root = keyQuery.from(Employee.class);
+        // Group keys are ignored on purpose: every group of the view must get the same pivot result columns
+        List<Predicate> predicates = buildWherePredicates(cb, root, request, false, null);
+        if (!predicates.isEmpty()) {
+            keyQuery.where(cb.and(predicates.toArray(new Predicate[0])));
+        }
+        List<Selection<?>> keySelections = new ArrayList<>();
+        List<Order> keyOrder = new ArrayList<>();
+        for (ServerSideGetRowsRequest.ColumnVO pivotCol : pivotCols) {
+            Expression<?> pivotExpression = pivotExpression(cb, root, pivotCol.getField());
+            keySelections.add(pivotExpression);
+            keyOrder.add(cb.asc(pivotExpression));
+        }
+        keyQuery.multiselect(keySelections).distinct(true).orderBy(keyOrder);
+
+        // Fetch one more than allowed so we can tell whether the list was truncated
+        List<Object[]> rows = entityManager.createQuery(keyQuery).setMaxResults(maxPivotKeys + 1).getResultList();
+        if (rows.size() > maxPivotKeys) {
+            logger.warn("Pivot on {} produces more than {} key combinations, extra pivot columns are dropped", signature, maxPivotKeys);
+            rows = rows.subList(0, maxPivotKeys);
+        }
+        List<List<Object>> keys = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            keys.add(Arrays.asList(row));
+        }
+        pivotKeyCache.put(signature, keys, keyGeneration);
+        return keys;
+    }
+
+    private static String pivotResultField(List<Object> keys, String valueField) {
+        StringBuilder field = new StringBuilder();
+        for (Object key : keys) {
+            field.append(key).append(PIVOT_FIELD_SEPARATOR);
+        }
+        return field.append(valueField).toString();
+    }
+
+    private static String pivotParam(int keyCombination, int pivotColumn) {
+        return PIVOT_PARAM_PREFIX + keyCombination + '_' + pivotColumn;
+    }
+
+    /**
+     * @return The parameter values of the pivot key conditions built by buildPivotSelections (NULL keys are IS NULL, not bound).
+     */
+    private static Map<String, Object> pivotKeyBindings(List<List<Object>> pivotKeys) {
+        Map<String, Object> bindings = new HashMap<>();
+        for (int k = 0; k < pivotKeys.size(); k++) {
+            List<Object> keys = pivotKeys.get(k);
+            for (int i = 0; i < keys.size(); i++) {
+                if (keys.get(i) != null) {
+                    bindings.put(pivotParam(k, i), keys.get(i));
+                }
+            }
+        }
+        return bindings;
+    }
+
+    /**
+     * @return What the pivot keys contribute to the query shape: the number of combinations and where they are NULL.
+     */
+    private static String pivotKeyShape(List<List<Object>> pivotKeys) {
+        if (pivotKeys == null) {
+            return "none";
+        }
+        StringBuilder shape = new StringBuilder().append(pivotKeys.size()).append(':');
+        for (List<Object> keys : pivotKeys) {
+            for (Object key : keys) {
+                shape.append(key == null ? 'n' : 'v');
+            }
+            shape.append(',');
+        }
+        return shape.toString();
+    }
+
+    /**
+     * Replaces the positional pivot select aliases with the pivot result field names.
+     */
+    private static List<String> toPivotResultFields(List<String> aliases, List<String> pivotResultFields) {
+        List<String> fields = new ArrayList<>(aliases.size());
+        for (String alias : aliases) {
+            fields.add(alias != null && alias.startsWith(PIVOT_ALIAS_PREFIX)
+                    ? pivotResultFields.get(Integer.parseInt(alias.substring(PIVOT_ALIAS_PREFIX.length())))
+                    : alias);
+        }
+        return fields;
+    }
+
+    /**
+     * @return Pivot result field name -> select alias, for sorting by a pivot result column.
+     */
+    private static Map<String, String> pivotSelectionAliases(List<List<Object>> pivotKeys, List<ServerSideGetRowsRequest.ColumnVO> valueCols) {
+        Map<String, String> aliases = new HashMap<>();
+        List<String> fields = pivotResultFields(pivotKeys, valueCols);
+        for (int i = 0; i < fields.size(); i++) {
+            aliases.put(fields.get(i), PIVOT_ALIAS_PREFIX + i);
+        }
+        return aliases;
+    }
+
+    private static List<String> pivotResultFields(List<List<Object>> pivotKeys, List<ServerSideGetRowsRequest.ColumnVO> valueCols) {
+        List<String> fields = new ArrayList<>();
+        for (List<Object> keys : pivotKeys) {
+            for (ServerSideGetRowsRequest.ColumnVO valueCol : valueCols) {
+                fields.add(pivotResultField(keys, valueCol.getField()));
+            }
+        }
+        return fields;
+    }
+
+    private static Expression<?> findSelectionByAlias(List<Selection<?>> selections, String alias) {
+        return selections.stream()
+                .filter(s -> alias.equals(s.getAlias()) && s instanceof Expression<?>)
+                .map(s -> (Expression<?>) s)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Looks up (or compiles) the filter plan for the request and binds the request's values.
+     * @param request The SSRM request DTO.
+     * @param bindings Receives the parameter values of the plan.
+     * @return The plan, or null if plan caching is disabled or a value could not be converted;
+     *         the caller then builds literal predicates with buildWherePredicates().
+     */
+    private FilterPlan resolveFilterPlan(ServerSideGetRowsRequest request, Map<String, Object> bindings) {
+        if (!predicatePlanCacheEnabled) {
+            return null;
+        }
+        FilterPlan plan = predicatePlanCache.planFor(request);
+        try {
+            plan.bind(request, bindings);
+            return plan;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // Invalid values (e.g. "abc" in a number filter) are handled by buildWherePredicates, which matches nothing for them
+            logger.debug("Filter values do not fit compiled plan {}, falling back to literal predicates: {}", plan.shapeKey(), e.getMessage());
+            bindings.clear();
+            return null;
+        }
+    }
+
+    /**
+     * Creates the TypedQuery for a Criteria query. If a shape key is given, the query is rendered to HQL once
+     * per shape and later executed from the cached HQL string, skipping Criteria building and translation.
+     * @param queryShapeKey Key of the parameterized query shape, or null to always execute the Criteria query directly.
+     * @param criteria Builds the Criteria query.
+     * @param resultType The query result type.
+     * @return The query (without parameter values) and the aliases of its select items.
+     */
+    private <T> PreparedQuery<T> prepareQuery(String queryShapeKey, Supplier<CriteriaQuery<T>> criteria, Class<T> resultType) {
+        if (queryShapeKey != null) {
+            PredicatePlanCache.CompiledQuery compiled = predicatePlanCache.compiledQuery(queryShapeKey, criteria);
+            if (compiled.hql() != null) {
+                return new PreparedQuery<>(entityManager.createQuery(compiled.hql(), resultType), compiled.aliases());
+            }
+        }
+        CriteriaQuery<T> criteriaQuery = criteria.get();
+        List<String> aliases = new ArrayList<>();
+        if (criteriaQuery.getSelection() != null && criteriaQuery.getSelection().isCompoundSelection()) {
+            criteriaQuery.getSelection().getCompoundSelectionItems().forEach(sel -> aliases.add(sel.getAlias()));
+        }
+        return new PreparedQuery<>(entityManager.createQuery(criteriaQuery), aliases);
+    }
+
+    private static void bindAll(TypedQuery<?> query, Map<String, Object> bindings) {
+        bindings.forEach(query::setParameter);
     }
 
     /**
@@ -151,11 +1406,25 @@ public class EmployeeService {
      * @return A list of JPA Predicate objects.
      */
     private List<Predicate> buildWherePredicates(CriteriaBuilder cb, Root<Employee> root, ServerSideGetRowsRequest request) {
+        return buildWherePredicates(cb, root, request, true, null);
+    }
+
+    /**
+     * Helper method to build WHERE predicates from the request filters and, optionally, the group keys.
+     * @param cb CriteriaBuilder instance.
+     * @param root The Root of the entity (Employee).
+     * @param request The SSRM request DTO.
+     * @param includeGroupKeys False to apply only the column filters (e.g. for pivot key discovery).
+     * @param excludedFilterField A column whose own filter is skipped (set filter values), or null.
+     * @return A list of JPA Predicate objects.
+     */
+    private List<Predicate> buildWherePredicates(CriteriaBuilder cb, Root<Employee> root, ServerSideGetRowsRequest request,
+                                                 boolean includeGroupKeys, String excludedFilterField) {
         List<Predicate> predicates = new ArrayList<>();
 
         // 1. Group Key Filters (if fetching data inside a specific group)
         boolean isGroupingRequest = !CollectionUtils.isEmpty(request.getRowGroupCols());
-        if (isGroupingRequest && !CollectionUtils.isEmpty(request.getGroupKeys())) {
+        if (includeGroupKeys && isGroupingRequest && !CollectionUtils.isEmpty(request.getGroupKeys())) {
             List<String> groupKeys = request.getGroupKeys();
             List<ServerSideGetRowsRequest.ColumnVO> rowGroupCols = request.getRowGroupCols();
 
@@ -196,6 +1465,9 @@ public class EmployeeService {
         // 2. Column Filters (Global Filters applied to all data)
         if (request.getFilterModel() != null && !request.getFilterModel().isEmpty()) {
             request.getFilterModel().forEach((field, filterModel) -> {
+                if (field.equals(excludedFilterField)) {
+                    return;
+                }
                 // TODO: Implement support for compound filters (AND/OR conditions) within a single column filter
                 // This requires checking filterModel.operator, filterModel.condition1, condition2 etc.
 
@@ -220,10 +1492,11 @@ public class EmployeeService {
 
                     switch (conditionType) {
                         case "contains":
-                            predicates.add(cb.like(cb.lower(textPath), "%" + lowerFilterValue + "%"));
+                            // Rendered as ILIKE when the column has a trigram index (see TextSearchSupport)
+                            predicates.add(textSearch.match(cb, textPath, field, "%" + lowerFilterValue + "%", false));
                             break;
                         case "notContains":
-                            predicates.add(cb.notLike(cb.lower(textPath), "%" + lowerFilterValue + "%"));
+                            predicates.add(textSearch.match(cb, textPath, field, "%" + lowerFilterValue + "%", true));
                             break;
                         case "equals":
                             predicates.add(cb.equal(cb.lower(textPath), lowerFilterValue));
@@ -235,7 +1508,7 @@ public class EmployeeService {
                              predicates.add(cb.like(cb.lower(textPath), lowerFilterValue + "%"));
                              break;
                         case "endsWith":
-                             predicates.add(cb.like(cb.lower(textPath), "%" + lowerFilterValue));
+                             predicates.add(textSearch.match(cb, textPath, field, "%" + lowerFilterValue, false));
                              break;
                         case "blank":
                              predicates.add(cb.or(cb.isNull(textPath), cb.equal(textPath, "")));
@@ -372,7 +1645,8 @@ public class EmployeeService {
                         }
 
                         if (!castValues.isEmpty()) {
-                             predicates.add(filterPath.in(castValues));
+                             // Same list shapes as the compiled plans: a padded IN list, or one array parameter for long lists
+                             predicates.add(setFilterStrategy.in(cb, filterPath, filterPath.getJavaType(), castValues));
                         }
                      } catch (NumberFormatException e) {
                          logger.warn("Invalid value in set filter list for field '{}'", field, e);
@@ -387,15 +1661,103 @@ public class EmployeeService {
     }
 
 
+    /**
+     * Resolves lastRow for a block that did not reach the end of the data, according to the count mode.
+     * Exact counts are served from the RowCountCache whenever the filters, row groups and group keys
+     * have not changed since the last count, so plain scrolling does not pay for a COUNT per block.
+     * @param cb CriteriaBuilder instance.
+     * @param request The SSRM request DTO.
+     * @param filterPlan The compiled filter plan, or null if literal predicates are used.
+     * @param wherePredicates Builds the WHERE predicates for a root.
+     * @param filterBindings Parameter values of the filter plan.
+     * @param isLeafQuery True if the request is for leaf rows rather than a group level.
+     * @param rowCountGeneration The RowCountCache generation captured before the block was read.
+     * @return The total count, an estimate, or -1 if unknown.
+     */
+    private long resolveLastRow(CriteriaBuilder cb, ServerSideGetRowsRequest request, FilterPlan filterPlan,
+                                Function<Root<Employee>, List<Predicate>> wherePredicates, Map<String, Object> filterBindings, boolean isLeafQuery,
+                                long rowCountGeneration) {
+        String filterSignature = SsrmRequests.filterSignature(request);
+        Long cached = rowCountCache.get(filterSignature);
+        metrics.cacheLookup(SsrmMetrics.CACHE_ROW_COUNT, cached != null);
+        if (cached != null) {
+            logger.debug("Row count cache hit for {}", filterSignature);
+            return cached;
+        }
+
+        switch (countMode) {
+            case UNKNOWN:
+                return -1;
+            case ESTIMATE:
+                // The planner estimate is only meaningful for the whole table
+                boolean isUnfiltered = CollectionUtils.isEmpty(request.getFilterModel()) && CollectionUtils.isEmpty(request.getGroupKeys());
+                return isLeafQuery && isUnfiltered ? estimateTableRowCount() : -1;
+            case EXACT:
+            default:
+                String countQueryShape = filterPlan == null ? null : "count|" + filterPlan.shapeKey() + '|' + SsrmRequests.structureSignature(request);
+                Timer.Sample countTimer = metrics.start();
+                long count = getTotalRowCount(cb, request, wherePredicates, filterBindings, countQueryShape);
+                metrics.recordPhase(countTimer, SsrmMetrics.PHASE_COUNT_QUERY, request);
+                if (count >= 0) {
+                    rowCountCache.put(filterSignature, count, rowCountGeneration);
+                }
+                return count;
+        }
+    }
+
+    /**
+     * Checks (once) whether the configured Hibernate dialect can render window functions such as COUNT(*) OVER().
+     * @return True if the single-query data + count path can be used.
+     */
+    private boolean supportsWindowFunctions() {
+        Boolean supported = windowFunctionsSupported;
+        if (supported == null) {
+            try {
+                supported = entityManager.getEntityManagerFactory()
+                        .unwrap(SessionFactoryImplementor.class)
+                        .getJdbcServices()
+                        .getDialect()
+                        .supportsWindowFunctions();
+            } catch (Exception e) {
+                logger.warn("Could not determine window function support from the dialect, using separate count queries", e);
+                supported = false;
+            }
+            windowFunctionsSupported = supported;
+        }
+        return supported;
+    }
+
+    /**
+     * Reads the planner's row estimate for the employee table (PostgreSQL statistics, maintained by ANALYZE/autovacuum).
+     * @return The estimated row count, or -1 if no estimate is available.
+     */
+    private long estimateTableRowCount() {
+        try {
+            Object estimate = entityManager
+                    .createNativeQuery("SELECT reltuples::bigint FROM pg_class WHERE relname = :table")
+                    .setParameter("table", countEstimateTable)
+                    .getSingleResult();
+            long value = ((Number) estimate).longValue();
+            // reltuples is -1 (PG14+) or 0 for tables that have never been analyzed
+            return value > 0 ? value : -1;
+        } catch (Exception e) {
+            logger.warn("Could not read planner row estimate for table '{}', returning -1", countEstimateTable, e);
+            return -1;
+        }
+    }
+
     /**
      * Helper method to get the total row count for the current level/filters.
      * This determines the `lastRow` for the AG Grid response.
      * @param cb CriteriaBuilder instance.
      * @param request The SSRM request DTO.
-     * @param predicates The list of Predicates (WHERE clauses) to apply.
-     * @return The total count.
+     * @param wherePredicates Builds the WHERE predicates (the same ones as the data query) for the count query's root.
+     * @param filterBindings Parameter values of the filter plan, if the predicates are parameterized.
+     * @param countQueryShape Key of the parameterized count query shape, or null to execute the Criteria query directly.
+     * @return The total count, or -1 if the count query failed.
      */
-    private long getTotalRowCount(CriteriaBuilder cb, ServerSideGetRowsRequest request, List<Predicate> predicates) {
+    private long getTotalRowCount(CriteriaBuilder cb, ServerSideGetRowsRequest request, Function<Root<Employee>, List<Predicate>> wherePredicates,
+                                  Map<String, Object> filterBindings, String countQueryShape) {
          boolean isGroupingRequest = !CollectionUtils.isEmpty(request.getRowGroupCols());
          boolean isRequestForSpecificGroupData = isGroupingRequest && !CollectionUtils.isEmpty(request.getGroupKeys());
          int currentGroupingLevel = isRequestForSpecificGroupData ? request.getGroupKeys().size() : 0;
@@ -403,35 +1765,41 @@ public class EmployeeService {
          boolean isRequestForLeafDataUnderGroup = isGroupingRequest && currentGroupingLevel == maxGroupingLevel;
 
 
-        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
-        Root<Employee> root = countQuery.from(Employee.class);
+        Supplier<CriteriaQuery<Long>> countCriteria = () -> {
+            CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+            Root<Employee> root = countQuery.from(Employee.class);
 
-         // Apply the same predicates calculated for the data query
-        if (!predicates.isEmpty()) {
-            // Note: If predicates depended on specific joins/paths only present in the dataQuery's root/joins,
-            // you'd need to recreate those joins here on the countQuery's root before applying predicates.
-            // In this simple example, predicates only use direct paths from the Employee root, so reuse is fine.
-            countQuery.where(cb.and(predicates.toArray(new Predicate[0])));
-        }
-
-        if (isGroupingRequest && !isRequestForLeafDataUnderGroup) {
-            // For a group level request, count the number of *distinct groups* at this level
-            String groupField = request.getRowGroupCols().get(currentGroupingLevel).getField();
-            countQuery.select(cb.countDistinct(root.get(groupField)));
-             logger.debug("Executing COUNT DISTINCT query for group level {}: {}", currentGroupingLevel, countQuery);
+            // Apply the same predicates as the data query, built against this query's own root
+            List<Predicate> predicates = wherePredicates.apply(root);
+            if (!predicates.isEmpty()) {
+                countQuery.where(cb.and(predicates.toArray(new Predicate[0])));
+            }
 
-        } else {
-            // For leaf level data (no grouping or under the last group), count the total number of rows
-            countQuery.select(cb.count(root));
-             logger.debug("Executing COUNT query for leaf level: {}", countQuery);
-        }
+            if (isGroupingRequest && !isRequestForLeafDataUnderGroup) {
+                // For a group level request, count the number of *distinct groups* at this level.
+                // COUNT(DISTINCT) skips NULL, but GROUP BY returns the NULL group as a row: add one for it
+                String groupField = request.getRowGroupCols().get(currentGroupingLevel).getField();
+                Path<Object> groupPath = root.get(groupField);
+                Expression<Long> hasNullGroup = cb.coalesce(
+                        cb.max(cb.<Long>selectCase().when(cb.isNull(groupPath), 1L).otherwise(0L)), 0L);
+                countQuery.select(cb.sum(cb.countDistinct(groupPath), hasNullGroup));
+                logger.debug("Building COUNT DISTINCT query for group level {}", currentGroupingLevel);
+            } else {
+                // For leaf level data (no grouping or under the last group), count the total number of rows
+                countQuery.select(cb.count(root));
+                logger.debug("Building COUNT query for leaf level");
+            }
+            return countQuery;
+        };
 
         try {
-             return entityManager.createQuery(countQuery).getSingleResult();
+            TypedQuery<Long> typedCountQuery = prepareQuery(countQueryShape, countCriteria, Long.class).query();
+            bindAll(typedCountQuery, filterBindings);
+            return typedCountQuery.getSingleResult();
         } catch (Exception e) {
             logger.error("Error executing count query", e);
-            // Return 0 or -1 in case of error, depending on desired grid behavior
-            return 0;
+            // -1 lets AG Grid keep scrolling (infinite mode) instead of truncating the grid to zero rows
+            return -1;
         }
     }
 
@@ -445,8 +1813,11 @@ public class EmployeeService {
      * @param isGroupingQuery True if the query is for a group level, false for leaf data.
      * @param rowGroupCols List of grouping columns (needed for group query sorting).
      * @param selections List of selections for the query (needed to potentially find aggregated columns for sorting).
+     * @param currentGroupingLevel The current depth of the group keys (used for the default group sort).
+     * @param pivotAliases Pivot result field -> select alias when pivoting, otherwise null.
      */
-    private void applySorting(CriteriaBuilder cb, CriteriaQuery<?> criteriaQuery, Root<Employee> root, List<ServerSideGetRowsRequest.SortModel> sortModel, boolean isGroupingQuery, List<ServerSideGetRowsRequest.ColumnVO> rowGroupCols, List<Selection<?>> selections) {
+    private void applySorting(CriteriaBuilder cb, CriteriaQuery<?> criteriaQuery, Root<Employee> root, List<ServerSideGetRowsRequest.SortModel> sortModel, boolean isGroupingQuery, List<ServerSideGetRowsRequest.ColumnVO> rowGroupCols, List<Selection<?>> selections, int currentGroupingLevel,
+                              Map<String, String> pivotAliases) {
         List<Order> orders = new ArrayList<>();
 
         if (!CollectionUtils.isEmpty(sortModel)) {
@@ -467,10 +1838,7 @@ public class EmployeeService {
                             if (groupCol.getField().equals(field)) {
                                 isGroupCol = true;
                                 // Find the corresponding selection for the group column by its alias
-                                sortExpression = selections.stream()
-                                    .filter(s -> field.equals(s.getAlias()))
-                                    .findFirst()
-                                    .orElse(null); // Should not be null if it's a selected group col
+                                sortExpression = findSelectionByAlias(selections, field); // Should not be null if it's a selected group col
                                 break;
                             }
                         }
@@ -478,11 +1846,10 @@ public class EmployeeService {
 
                     if (sortExpression == null) {
                         // If not a group column, check if it's an aggregated column by alias
-                         // Example: Check for 'agGrid_Count' or 'sum_salary' aliases added in the select
-                         sortExpression = selections.stream()
-                             .filter(s -> field.equals(s.getAlias())) // Assuming sort colId matches aggregation alias
-                             .findFirst()
-                             .orElse(null);
+                         // Example: 'agGrid_Count', or 'salary' for a valueCol aggregated with sum/avg/min/max/count
+                         // Pivot result columns are selected under positional aliases
+                         String alias = pivotAliases != null ? pivotAliases.getOrDefault(field, field) : field;
+                         sortExpression = findSelectionByAlias(selections, alias); // Sort colId matches the aggregation alias
                          if (sortExpression == null) {
                              logger.warn("Sorting by non-group/non-aggregated column '{}' ignored in grouping query.", field);
                               continue; // Skip this sort model
@@ -495,7 +1862,12 @@ public class EmployeeService {
                 }
 
                 if (sortExpression != null) {
-                     if ("desc".equalsIgnoreCase(sortDirection)) {
+                     boolean descending = "desc".equalsIgnoreCase(sortDirection);
+                     if (!isGroupingQuery && cb instanceof HibernateCriteriaBuilder hcb) {
+                        // Leaf rows: make PostgreSQL's NULL placement explicit (last ascending, first descending)
+                        // on every database, the keyset seek predicate relies on it
+                        orders.add(descending ? hcb.desc(sortExpression, true) : hcb.asc(sortExpression, false));
+                     } else if (descending) {
                         orders.add(cb.desc(sortExpression));
                      } else {
                         orders.add(cb.asc(sortExpression));
@@ -507,18 +1879,109 @@ public class EmployeeService {
         // AG Grid often expects results for a group level to be ordered by the group column itself
         // as the primary sort, even if other sorts are applied.
         // If no sort model is provided but it's a group query, sort by the group column.
-         if (orders.isEmpty() && isGroupingQuery && !CollectionUtils.isEmpty(rowGroupCols) && rowGroupCols.size() > request.getGroupKeys().size()) {
-             String groupField = rowGroupCols.get(request.getGroupKeys().size()).getField();
+         if (orders.isEmpty() && isGroupingQuery && !CollectionUtils.isEmpty(rowGroupCols) && rowGroupCols.size() > currentGroupingLevel) {
+             String groupField = rowGroupCols.get(currentGroupingLevel).getField();
              orders.add(cb.asc(root.get(groupField))); // Default sort ascending by group field
               logger.debug("Applying default sort by group column '{}'", groupField);
          }
 
+        // Leaf rows always get 'id' as the final tiebreaker. Without a total order, OFFSET pages can
+        // overlap or skip rows, and the keyset seek in getData() relies on (sortcols, id) being unique.
+        if (!isGroupingQuery && !isSortedBy(sortModel, "id")) {
+            orders.add(cb.asc(root.get("id")));
+        }
+
 
         if (!orders.isEmpty()) {
             criteriaQuery.orderBy(orders);
         }
     }
 
+    private static boolean isSortedBy(List<ServerSideGetRowsRequest.SortModel> sortModel, String field) {
+        return sortModel != null && sortModel.stream().anyMatch(sm -> field.equals(sm.getColId()));
+    }
+
+    /**
+     * Resolves the effective sort of a leaf query as applied by applySorting(): the sort model in order,
+     * followed by 'id' as a tiebreaker.
+     * @param sortModel The list of SortModel from the request.
+     * @param aliases The aliases selected by the leaf query; every sort column must be selected so its value can be read back.
+     * @return The sort keys, or null if keyset pagination cannot be used for this sort.
+     */
+    private List<SortKey> resolveLeafSortKeys(List<ServerSideGetRowsRequest.SortModel> sortModel, List<String> aliases) {
+        List<SortKey> sortKeys = new ArrayList<>();
+        if (!CollectionUtils.isEmpty(sortModel)) {
+            for (ServerSideGetRowsRequest.SortModel sm : sortModel) {
+                sortKeys.add(new SortKey(sm.getColId(), "desc".equalsIgnoreCase(sm.getSort())));
+            }
+        }
+        if (!isSortedBy(sortModel, "id")) {
+            sortKeys.add(new SortKey("id", false));
+        }
+        for (SortKey sortKey : sortKeys) {
+            if (!aliases.contains(sortKey.field())) {
+                logger.debug("Sort column '{}' is not selected, keyset pagination disabled for this request", sortKey.field());
+                return null;
+            }
+        }
+        return sortKeys;
+    }
+
+    /**
+     * Reads the sort-key tuple of a result row.
+     * Leaf queries pin the NULL order (NULLS LAST ascending, NULLS FIRST descending, see applySorting), which
+     * buildSeekPredicate relies on. A NULL anchor value still cannot be expressed there: "k > NULL" matches
+     * nothing, and the rows after a NULL anchor would need "k IS NULL AND (next keys...)" branches per column.
+     * @return The tuple, or null if any value is null; the next block then falls back to OFFSET.
+     */
+    private Object[] extractSortKeyTuple(Object[] row, List<SortKey> sortKeys, List<String> aliases) {
+        Object[] tuple = new Object[sortKeys.size()];
+        for (int i = 0; i < sortKeys.size(); i++) {
+            Object value = row[aliases.indexOf(sortKeys.get(i).field())];
+            if (value == null) {
+                return null;
+            }
+            tuple[i] = value;
+        }
+        return tuple;
+    }
+
+    /**
+     * Builds the row-value comparison (k1, k2, ..., id) > (v1, v2, ..., vId) expanded into its
+     * lexicographic form, since JPA Criteria has no row-value constructor:
+     * (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... with '<' for descending columns.
+     * Leaf queries sort NULLs last ascending and first descending (see applySorting), so for an ascending
+     * column the NULL rows also come after a (never null, see extractSortKeyTuple) anchor value: those
+     * comparisons become (k > v OR k IS NULL). For descending columns the NULL rows precede the anchor.
+     * The anchor values are named parameters k0..kN, so the query shape does not depend on the anchor.
+     * @param cb CriteriaBuilder instance.
+     * @param root The Root of the entity (Employee).
+     * @param sortKeys The effective sort of the query.
+     * @return A predicate matching only rows after the anchor.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate buildSeekPredicate(CriteriaBuilder cb, Root<Employee> root, List<SortKey> sortKeys) {
+        List<Predicate> disjuncts = new ArrayList<>();
+        for (int i = 0; i < sortKeys.size(); i++) {
+            List<Predicate> conjuncts = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                Path<?> equalPath = root.get(sortKeys.get(j).field());
+                conjuncts.add(cb.equal(equalPath, cb.parameter(equalPath.getJavaType(), SEEK_PARAM_PREFIX + j)));
+            }
+            Path<Comparable> path = root.get(sortKeys.get(i).field());
+            Expression<Comparable> value = cb.parameter((Class<Comparable>) path.getJavaType(), SEEK_PARAM_PREFIX + i);
+            if (sortKeys.get(i).descending()) {
+                conjuncts.add(cb.lessThan(path, value));
+            } else if ("id".equals(sortKeys.get(i).field())) {
+                conjuncts.add(cb.greaterThan(path, value));
+            } else {
+                conjuncts.add(cb.or(cb.greaterThan(path, value), cb.isNull(path)));
+            }
+            disjuncts.add(cb.and(conjuncts.toArray(new Predicate[0])));
+        }
+        return cb.or(disjuncts.toArray(new Predicate[0]));
+    }
+
     /**
      * Helper method to format the query results into the List<Map<String, Object>> structure
      * expected by AG Grid.
@@ -527,14 +1990,11 @@ public class EmployeeService {
      * @param isGrouping True if the request involves grouping.
      * @param isRequestForLeafDataUnderGroup True if requesting leaf data under the deepest group.
      * @param currentGroupingLevel The current depth of the group keys.
-     * @param selections The list of JPA selections used in the query.
+     * @param aliases The aliases of the query's select items, in order.
      * @return A list of maps representing the rows for the AG Grid response.
      */
-    private List<Map<String, Object>> formatResults(List<Object[]> results, ServerSideGetRowsRequest request, boolean isGrouping, boolean isRequestForLeafDataUnderGroup, int currentGroupingLevel, List<Selection<?>> selections) {
+    private List<Map<String, Object>> formatResults(List<Object[]> results, ServerSideGetRowsRequest request, boolean isGrouping, boolean isRequestForLeafDataUnderGroup, int currentGroupingLevel, List<String> aliases) {
         List<Map<String, Object>> formattedRows = new ArrayList<>();
-        List<String> aliases = selections.stream()
-                                        .map(Selection::getAlias)
-                                        .collect(Collectors.toList());
 
         for (Object[] result : results) {
             Map<String, Object> row = new LinkedHashMap<>(); // Use LinkedHashMap to potentially preserve column order
@@ -549,7 +2009,8 @@ public class EmployeeService {
                 String groupField = request.getRowGroupCols().get(currentGroupingLevel).getField();
                 Object groupValue = null;
                 Object countValue = null;
-                // TODO: Extract other aggregation values based on their alias/position in results[]
+                // Aggregated valueCols, keyed by their field (the alias used in buildAggregateSelections)
+                Map<String, Object> aggregateValues = new LinkedHashMap<>();
 
                 // Match results array indices to selection aliases
                 for(int i = 0; i < aliases.size() && i < result.length; i++) {
@@ -558,8 +2019,9 @@ public class EmployeeService {
                              groupValue = result[i];
                          } else if (aliases.get(i).equals("agGrid_Count")) { // Match the alias used in select
                              countValue = result[i];
+                         } else {
+                             aggregateValues.put(aliases.get(i), result[i]);
                          }
-                         // TODO: Map other aggregation aliases here
                     }
                 }
 
@@ -579,7 +2041,8 @@ public class EmployeeService {
                 // Aggregated values should also be provided keyed by their respective field names/aliases.
                 row.put("agGrid_Count", countValue); // Add the count under a specific key
 
-                // Add aggregated values under their aliases (e.g., row.put("sum_salary", sumSalaryValue);)
+                // Add aggregated values under their aliases (e.g., row.put("salary", sumOfSalaries);)
+                row.putAll(aggregateValues);
 
 
                 // AG Grid internally handles the group key path. Providing the group value is key.
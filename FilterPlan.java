@@ -0,0 +1,79 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.example.aggridssremployee.model.Employee;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled, parameterized version of the WHERE clause built by EmployeeService.buildWherePredicates
+ * for one filter "shape" (fields, filter types, condition types and which values are present).
+ * All type checks, condition dispatching and unsupported-filter warnings happen once, at compile time;
+ * per request only the values are converted and bound to named parameters.
+ * Instances are immutable and shared between requests, see {@link PredicatePlanCache}.
+ */
+public final class FilterPlan {
+
+    /** Creates the (parameterized) predicate of one step against a given root. */
+    @FunctionalInterface
+    interface PredicateFactory {
+        Predicate create(CriteriaBuilder cb, Root<Employee> root);
+    }
+
+    /**
+     * Converts the request's value(s) for one step and puts them into the parameter bindings.
+     * Throws IllegalArgumentException (or DateTimeParseException) if a value cannot be converted.
+     */
+    @FunctionalInterface
+    interface Binder {
+        void bind(ServerSideGetRowsRequest request, Map<String, Object> bindings);
+    }
+
+    record Step(PredicateFactory predicate, Binder binder) {}
+
+    private final String shapeKey;
+    private final List<Step> steps;
+
+    FilterPlan(String shapeKey, List<Step> steps) {
+        this.shapeKey = shapeKey;
+        this.steps = List.copyOf(steps);
+    }
+
+    /**
+     * @return The filter shape this plan was compiled for; part of the query plan cache key.
+     */
+    public String shapeKey() {
+        return shapeKey;
+    }
+
+    /**
+     * Builds the parameterized predicates against the given root. The resulting criteria tree is
+     * identical for every request of the same shape, so it renders to the same HQL.
+     * @param cb CriteriaBuilder instance.
+     * @param root The Root of the entity (Employee).
+     * @return A list of JPA Predicate objects referencing named parameters.
+     */
+    public List<Predicate> toPredicates(CriteriaBuilder cb, Root<Employee> root) {
+        List<Predicate> predicates = new ArrayList<>(steps.size());
+        for (Step step : steps) {
+            predicates.add(step.predicate().create(cb, root));
+        }
+        return predicates;
+    }
+
+    /**
+     * Converts the request's filter and group key values and adds them to the parameter bindings.
+     * @param request The SSRM request DTO (must have the shape this plan was compiled for).
+     * @param bindings Parameter name to value map the values are added to.
+     */
+    public void bind(ServerSideGetRowsRequest request, Map<String, Object> bindings) {
+        for (Step step : steps) {
+            step.binder().bind(request, bindings);
+        }
+    }
+}
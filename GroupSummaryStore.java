@@ -0,0 +1,383 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
+import com.example.aggridssremployee.model.Employee;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.CollectionUtils;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Pre-aggregated group counts and salary sums for the grid's frequently grouped columns (and pairs of
+ * columns), kept in the employee_group_summary table (see db/migration).
+ * <p>
+ * An unfiltered group level (e.g. the top level of a grid grouped by department) otherwise costs a
+ * GROUP BY over the whole table. When the level's grouping is configured here and no filter applies,
+ * getData serves it from the summary rows instead, at a cost proportional to the number of groups.
+ * <p>
+ * The summary is built once at startup and then maintained incrementally by the write paths: a writer
+ * calls {@link #removeRows} with the changed rows before modifying them and {@link #addRows} afterwards,
+ * on its own connection, so the summary commits (or rolls back) together with the change. Writers that
+ * bypass these hooks leave the summary stale, which is why the subsystem is off by default. The writers name
+ * the table they change, and a table other than employee.ssrm.group-summary.table is rejected.
+ * <p>
+ * Group values are stored as text and converted back to the entity field's type when read, so summary
+ * rows carry the same key values (Integer, LocalDate, ...) as the query path. Levels are sorted and counted
+ * by the same rules as the query path (database collation and NULL placement, the NULL group included).
+ * <p>
+ * Requires PostgreSQL 15+: the summary table's unique key uses NULLS NOT DISTINCT for the NULL groups.
+ */
+@Component
+public class GroupSummaryStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupSummaryStore.class);
+
+    private static final String SUMMARY_TABLE = "employee_group_summary";
+
+    // Only these aggregations can be derived from (row_count, salary_sum, salary_count); min/max cannot be maintained under deletes
+    private static final String SUMMED_FIELD = "salary";
+    private static final Set<String> SUMMARY_AGG_FUNCS = Set.of("sum", "avg", "count");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final String table;
+
+    // Configured groupings, each a list of one or two entity fields (e.g. [department], [department, jobTitle])
+    private final List<List<String>> groupings;
+
+    // False until the first rebuild has completed
+    private volatile boolean ready;
+
+    public GroupSummaryStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             @Value("${employee.ssrm.group-summary.enabled:false}") boolean enabled,
+                             @Value("${employee.ssrm.group-summary.table:employee}") String table,
+                             @Value("${employee.ssrm.group-summary.groupings:department,jobTitle,department+jobTitle}") List<String> groupings) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.table = table;
+        this.groupings = groupings.stream()
+                .map(grouping -> Arrays.stream(grouping.split("\\+")).map(String::trim).collect(Collectors.toList()))
+                .filter(fields -> fields.size() <= 2)
+                .collect(Collectors.toList());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The summarized base table (employee.ssrm.group-summary.table); writers must pass it to removeRows/addRows.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Recomputes all summary rows from the base table in one transaction.
+     * Readers keep seeing the previous summary until the rebuild commits.
+     */
+    public void rebuild() {
+        long started = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM " + SUMMARY_TABLE);
+            for (List<String> fields : groupings) {
+                jdbcTemplate.update("INSERT INTO " + SUMMARY_TABLE + " (group_columns, key1, key2, row_count, salary_sum, salary_count) "
+                        + "SELECT ?, " + keyColumns(fields, "") + ", count(*), coalesce(sum(salary), 0), count(salary) "
+                        + "FROM " + table + " GROUP BY " + keyColumns(fields, ""), groupingKey(fields));
+            }
+        });
+        ready = true;
+        logger.info("Rebuilt group summaries for {} groupings in {} ms", groupings.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Subtracts rows from the summary. Call before the rows are updated or deleted, in the same transaction.
+     * @param conn The writer's connection (its transaction is not committed here).
+     * @param baseTable The table the rows belong to; must be the summarized table.
+     * @param rowsSql A SELECT returning the affected rows of the base table, with its column names
+     *                (e.g. "SELECT m.* FROM employee m JOIN temp_upload t ON ...").
+     * @throws IllegalStateException If the summary is enabled for a different table.
+     */
+    public void removeRows(Connection conn, String baseTable, String rowsSql) throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        applyDelta(conn, baseTable, rowsSql, -1);
+    }
+
+    /**
+     * Adds rows to the summary. Call after the rows are inserted or updated, in the same transaction.
+     * @param conn The writer's connection (its transaction is not committed here).
+     * @param baseTable The table the rows belong to; must be the summarized table.
+     * @param rowsSql A SELECT returning the affected rows of the base table, with its column names.
+     * @throws IllegalStateException If the summary is enabled for a different table.
+     */
+    public void addRows(Connection conn, String baseTable, String rowsSql) throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        applyDelta(conn, baseTable, rowsSql, 1);
+        // Groups whose last row moved elsewhere
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM " + SUMMARY_TABLE + " WHERE row_count = 0")) {
+            ps.executeUpdate();
+        }
+    }
+
+    private void applyDelta(Connection conn, String baseTable, String rowsSql, int sign) throws SQLException {
+        if (!table.equals(baseTable)) {
+            // The summary was built from another table, applying these rows would corrupt it
+            throw new IllegalStateException("Group summary is built from '" + table + "' (employee.ssrm.group-summary.table), "
+                    + "cannot apply changes of '" + baseTable + "'");
+        }
+        for (List<String> fields : groupings) {
+            // One upsert per grouping; the unique key treats NULL group values as equal (NULLS NOT DISTINCT)
+            String sql = "INSERT INTO " + SUMMARY_TABLE + " AS s (group_columns, key1, key2, row_count, salary_sum, salary_count) "
+                    + "SELECT ?, " + keyColumns(fields, "d.") + ", " + sign + " * count(*), " + sign + " * coalesce(sum(d.salary), 0), " + sign + " * count(d.salary) "
+                    + "FROM (" + rowsSql + ") d GROUP BY " + keyColumns(fields, "d.") + " "
+                    + "ON CONFLICT (group_columns, key1, key2) DO UPDATE SET "
+                    + "row_count = s.row_count + EXCLUDED.row_count, "
+                    + "salary_sum = s.salary_sum + EXCLUDED.salary_sum, "
+                    + "salary_count = s.salary_count + EXCLUDED.salary_count";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, groupingKey(fields));
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Serves a group level from the summary if possible: no filters, no pivot, a configured grouping for the
+     * level, and only sum/avg/count of salary as value columns.
+     * @param request The SSRM request DTO.
+     * @return The complete response (rows and exact lastRow), or null if the level must be queried.
+     */
+    public ServerSideGetRowsResponse getGroupLevel(ServerSideGetRowsRequest request) {
+        if (!enabled || !ready || CollectionUtils.isEmpty(request.getRowGroupCols())
+                || !CollectionUtils.isEmpty(request.getFilterModel()) || request.isPivotMode()) {
+            return null;
+        }
+        int level = CollectionUtils.isEmpty(request.getGroupKeys()) ? 0 : request.getGroupKeys().size();
+        if (level >= request.getRowGroupCols().size()) {
+            return null; // Leaf rows
+        }
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i <= level; i++) {
+            fields.add(request.getRowGroupCols().get(i).getField());
+        }
+        if (!groupings.contains(fields) || !hasSummarizableValueCols(request.getValueCols())) {
+            return null;
+        }
+        String groupField = fields.get(level);
+        Class<?> keyType = entityManager.getMetamodel().entity(Employee.class).getAttribute(groupField).getJavaType();
+        if (!isConvertibleKeyType(keyType)) {
+            return null;
+        }
+
+        List<Object> params = new ArrayList<>();
+        params.add(groupingKey(fields));
+        String sql = "SELECT key" + (level + 1) + ", row_count, salary_sum, salary_count FROM " + SUMMARY_TABLE + " WHERE group_columns = ?";
+        if (level == 1) {
+            sql += " AND key1 IS NOT DISTINCT FROM ?";
+            params.add(request.getGroupKeys().get(0));
+        }
+        // Sorted by the database, so text keys follow its collation like the query path's ORDER BY
+        sql += " ORDER BY " + orderByClause(request, groupField, typedKey("key" + (level + 1), keyType));
+
+        List<Map<String, Object>> rows = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            long count = rs.getLong("row_count");
+            BigDecimal salarySum = rs.getBigDecimal("salary_sum");
+            long salaryCount = rs.getLong("salary_count");
+            // Same row layout as EmployeeService.formatResults for group rows
+            row.put(groupField, toKey(rs.getString(1), keyType));
+            row.put("agGrid_Count", count);
+            if (request.getValueCols() != null) {
+                for (ServerSideGetRowsRequest.ColumnVO valueCol : request.getValueCols()) {
+                    row.put(valueCol.getField(), aggregate(valueCol.getAggFunc(), salarySum, salaryCount));
+                }
+            }
+            return row;
+        }, params.toArray());
+
+        int from = Math.min(request.getStartRow(), rows.size());
+        int to = Math.min(request.getEndRow(), rows.size());
+        logger.debug("Served group level {} ({}) from summary: {} groups", level, groupingKey(fields), rows.size());
+        return new ServerSideGetRowsResponse(new ArrayList<>(rows.subList(from, to)), rows.size());
+    }
+
+    private static boolean isConvertibleKeyType(Class<?> type) {
+        return type == String.class || type == Integer.class || type == int.class || type == Long.class || type == long.class
+                || type == BigDecimal.class || type == LocalDate.class || type == Boolean.class || type == boolean.class;
+    }
+
+    /**
+     * Converts a key stored as text back to the group column's type. PostgreSQL's ::text renders dates as
+     * yyyy-MM-dd (DateStyle ISO) and booleans as true/false, both parsed by the Java types directly.
+     */
+    private static Object toKey(String text, Class<?> type) {
+        if (text == null || type == String.class) {
+            return text;
+        }
+        if (type == Integer.class || type == int.class) {
+            return Integer.valueOf(text);
+        }
+        if (type == Long.class || type == long.class) {
+            return Long.valueOf(text);
+        }
+        if (type == BigDecimal.class) {
+            return new BigDecimal(text);
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.parse(text);
+        }
+        return Boolean.valueOf(text);
+    }
+
+    private static boolean hasSummarizableValueCols(List<ServerSideGetRowsRequest.ColumnVO> valueCols) {
+        if (valueCols == null) {
+            return true;
+        }
+        return valueCols.stream().allMatch(col -> SUMMED_FIELD.equals(col.getField()) && SUMMARY_AGG_FUNCS.contains(col.getAggFunc()));
+    }
+
+    private static Object aggregate(String aggFunc, BigDecimal sum, long count) {
+        switch (aggFunc) {
+            case "sum":
+                // SUM over no non-null values is NULL in SQL
+                return count == 0 ? null : sum;
+            case "avg":
+                return count == 0 ? null : sum.doubleValue() / count;
+            case "count":
+            default:
+                return count;
+        }
+    }
+
+    /**
+     * Orders like the SQL group level query: by the sort model's group column, agGrid_Count or value columns
+     * (other columns are ignored), with the database's NULL placement (last ascending, first descending),
+     * and by the group column when nothing applies. The group key is appended as a tiebreaker so pages of
+     * equal aggregates do not overlap.
+     * @param keyExpression The level's key column cast back to the group column's type.
+     */
+    private static String orderByClause(ServerSideGetRowsRequest request, String groupField, String keyExpression) {
+        List<String> orders = new ArrayList<>();
+        if (request.getSortModel() != null) {
+            for (ServerSideGetRowsRequest.SortModel sm : request.getSortModel()) {
+                String expression = sortExpression(sm.getColId(), request.getValueCols(), groupField, keyExpression);
+                if (expression != null) {
+                    orders.add(expression + ("desc".equalsIgnoreCase(sm.getSort()) ? " DESC" : " ASC"));
+                }
+            }
+        }
+        if (orders.isEmpty()) {
+            orders.add(keyExpression + " ASC");
+        } else {
+            orders.add(keyExpression);
+        }
+        return String.join(", ", orders);
+    }
+
+    private static String sortExpression(String colId, List<ServerSideGetRowsRequest.ColumnVO> valueCols, String groupField, String keyExpression) {
+        if (groupField.equals(colId)) {
+            return keyExpression;
+        }
+        if ("agGrid_Count".equals(colId)) {
+            return "row_count";
+        }
+        if (valueCols == null) {
+            return null;
+        }
+        for (ServerSideGetRowsRequest.ColumnVO valueCol : valueCols) {
+            if (valueCol.getField().equals(colId)) {
+                // Same values as aggregate()
+                switch (valueCol.getAggFunc()) {
+                    case "sum":
+                        return "CASE WHEN salary_count = 0 THEN NULL ELSE salary_sum END";
+                    case "avg":
+                        return "salary_sum / NULLIF(salary_count, 0)";
+                    case "count":
+                    default:
+                        return "salary_count";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The text key column cast to the group column's SQL type, so it sorts like the column itself.
+     */
+    private static String typedKey(String keyColumn, Class<?> type) {
+        if (type == Integer.class || type == int.class) {
+            return keyColumn + "::integer";
+        }
+        if (type == Long.class || type == long.class) {
+            return keyColumn + "::bigint";
+        }
+        if (type == BigDecimal.class) {
+            return keyColumn + "::numeric";
+        }
+        if (type == LocalDate.class) {
+            return keyColumn + "::date";
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return keyColumn + "::boolean";
+        }
+        return keyColumn;
+    }
+
+    private static String groupingKey(List<String> fields) {
+        return String.join("+", fields);
+    }
+
+    /**
+     * @return The select/group-by list for key1 and key2 of a grouping, e.g. "d.department::text, NULL::text".
+     */
+    private static String keyColumns(List<String> fields, String prefix) {
+        String key1 = prefix + columnName(fields.get(0)) + "::text";
+        String key2 = fields.size() > 1 ? prefix + columnName(fields.get(1)) + "::text" : "NULL::text";
+        return key1 + ", " + key2;
+    }
+
+    /**
+     * Maps an entity field to its column the way Spring's default physical naming strategy does (jobTitle -> job_title).
+     */
+    private static String columnName(String field) {
+        return field.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+    }
+}
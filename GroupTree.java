@@ -0,0 +1,12 @@
+package com.example.aggridssremployee.service;
+
+import java.util.List;
+
+/**
+ * Response of the group tree batch endpoint.
+ * @param nodes The top level groups under the request's groupKeys, each with its children.
+ * @param truncated True if the tree had more groups than employee.ssrm.group-tree.max-groups and was cut off.
+ *                  The groups the cut fell into are marked truncated; they and the groups after them must be
+ *                  loaded level by level.
+ */
+public record GroupTree(List<GroupTreeNode> nodes, boolean truncated) {}
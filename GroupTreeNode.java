@@ -0,0 +1,17 @@
+package com.example.aggridssremployee.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One group row of a multi-level group tree (see EmployeeService.getGroupTree).
+ * @param field The row group column of this level (e.g. "department").
+ * @param key The group value.
+ * @param count Number of employees in the group (agGrid_Count).
+ * @param aggregates The valueCols aggregates of the group, keyed by value column field.
+ * @param children Child groups of the next level, in sort order; empty at the deepest returned level.
+ * @param truncated True if the tree was cut off inside this group (see GroupTree.truncated): its children are
+ *                  incomplete, and count and aggregates only cover the returned children.
+ */
+public record GroupTreeNode(String field, Object key, long count, Map<String, Object> aggregates, List<GroupTreeNode> children,
+                            boolean truncated) {}
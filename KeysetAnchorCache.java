@@ -0,0 +1,80 @@
+package com.example.aggridssremployee.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the sort-key tuple of the last row of each served block, so that the block that
+ * follows it can be fetched with a keyset seek (WHERE (sortcols) > (lastKey)) instead of an OFFSET.
+ * Entries are keyed by the view signature plus the row index the anchor precedes.
+ */
+@Component
+public class KeysetAnchorCache {
+
+    private final int maxAnchors;
+
+    // Access-ordered LinkedHashMap gives us a simple LRU; guarded by 'this'
+    private final LinkedHashMap<String, Object[]> anchors;
+
+    // Bumped by clear(); an anchor read before the last clear() is dropped
+    private long generation;
+
+    public KeysetAnchorCache(@Value("${employee.ssrm.keyset-pagination.max-anchors:10000}") int maxAnchors) {
+        this.maxAnchors = maxAnchors;
+        this.anchors = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object[]> eldest) {
+                return size() > KeysetAnchorCache.this.maxAnchors;
+            }
+        };
+    }
+
+    /**
+     * Looks up the sort-key tuple of the row directly before {@code startRow}.
+     * @param viewSignature Signature of the view (filters, sort, grouping).
+     * @param startRow The first row of the block about to be fetched.
+     * @return The anchor tuple, or null if the previous block was never served.
+     */
+    public synchronized Object[] find(String viewSignature, int startRow) {
+        return anchors.get(key(viewSignature, startRow));
+    }
+
+    /**
+     * Records the sort-key tuple of the last row of a block.
+     * @param viewSignature Signature of the view (filters, sort, grouping).
+     * @param nextStartRow The row index directly after the block (where the next block starts).
+     * @param keyTuple Values of the sort columns (plus id tiebreaker) of the last row.
+     * @param generation The {@link #generation()} captured before the block was read.
+     */
+    public synchronized void remember(String viewSignature, int nextStartRow, Object[] keyTuple, long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        anchors.put(key(viewSignature, nextStartRow), keyTuple);
+    }
+
+    /**
+     * @return The current generation; capture it before reading a block whose anchor will be remembered.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void clear() {
+        anchors.clear();
+        generation++;
+    }
+
+    @EventListener
+    public void onTableDataChanged(TableDataChangedEvent event) {
+        clear();
+    }
+
+    private static String key(String viewSignature, int row) {
+        return viewSignature + '@' + row;
+    }
+}
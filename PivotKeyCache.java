@@ -0,0 +1,88 @@
+package com.example.aggridssremployee.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the distinct pivot key combinations of a (pivotCols, filterModel) pair, so that the
+ * SELECT DISTINCT that discovers the pivot result columns runs once per TTL rather than for every block.
+ * Bounded by entry count (LRU eviction) and by age (TTL), and dropped after table changes.
+ */
+@Component
+public class PivotKeyCache {
+
+    private record Entry(List<List<Object>> keys, long expiresAtNanos) {}
+
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    // Access-ordered LinkedHashMap gives us a simple LRU; guarded by 'this'
+    private final LinkedHashMap<String, Entry> pivotKeys;
+
+    // Bumped by clear(); a put computed from data read before the last clear() is dropped
+    private long generation;
+
+    public PivotKeyCache(@Value("${employee.ssrm.pivot.key-cache.ttl:5m}") Duration ttl,
+                         @Value("${employee.ssrm.pivot.key-cache.max-entries:500}") int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.pivotKeys = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > PivotKeyCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param signature Pivot columns plus filter signature.
+     * @return The cached key combinations (one list of values per pivot column each), or null if absent or expired.
+     */
+    public synchronized List<List<Object>> get(String signature) {
+        Entry entry = pivotKeys.get(signature);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos() > 0) {
+            pivotKeys.remove(signature);
+            return null;
+        }
+        return entry.keys();
+    }
+
+    /**
+     * @return The current generation; capture it before running the query whose keys will be put.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * @param signature Pivot columns plus filter signature.
+     * @param keys The key combinations.
+     * @param generation The {@link #generation()} captured before the keys were read.
+     */
+    public synchronized void put(String signature, List<List<Object>> keys, long generation) {
+        if (generation != this.generation) {
+            // Read before the last table change, already stale
+            return;
+        }
+        pivotKeys.put(signature, new Entry(List.copyOf(keys), System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void clear() {
+        pivotKeys.clear();
+        generation++;
+    }
+
+    @EventListener
+    public void onTableDataChanged(TableDataChangedEvent event) {
+        clear();
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.example.aggridssremployee.model.Employee;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaQuery;
+import org.hibernate.query.sqm.tree.SqmVisitableNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Caches two things per filter shape so that repeated requests skip the expensive parts of query building:
+ * <ul>
+ *     <li>{@link FilterPlan}s: the WHERE clause compiled into parameterized predicate factories and value binders.</li>
+ *     <li>The HQL rendered from the full parameterized Criteria query. Executing the same HQL string lets
+ *     Hibernate reuse its own query interpretation cache, skipping the Criteria-to-SQL translation.</li>
+ * </ul>
+ * The filter shape is the set of (field, filterType, condition type, which values are present); the values
+ * themselves are never part of a key.
+ */
+@Component
+public class PredicatePlanCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PredicatePlanCache.class);
+
+    /**
+     * A rendered query: the HQL to execute and the aliases of its select items, in order.
+     * A null hql means the criteria could not be rendered and must be executed directly.
+     */
+    public record CompiledQuery(String hql, List<String> aliases) {}
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int maxEntries;
+
+    // Access-ordered LinkedHashMaps give us a simple LRU; each guarded by itself
+    private final Map<String, FilterPlan> filterPlans;
+    private final Map<String, CompiledQuery> compiledQueries;
+
+    private final TextSearchSupport textSearch;
+    private final SetFilterStrategy setFilterStrategy;
+
+    public PredicatePlanCache(@Value("${employee.ssrm.plan-cache.max-entries:2000}") int maxEntries, TextSearchSupport textSearch,
+                              SetFilterStrategy setFilterStrategy) {
+        this.maxEntries = maxEntries;
+        this.textSearch = textSearch;
+        this.setFilterStrategy = setFilterStrategy;
+        this.filterPlans = lruMap();
+        this.compiledQueries = lruMap();
+    }
+
+    /**
+     * Returns the compiled filter plan for the request's filter shape, compiling it on first use.
+     * @param request The SSRM request DTO.
+     * @return The plan; call {@link FilterPlan#bind} to obtain the parameter values for this request.
+     */
+    public FilterPlan planFor(ServerSideGetRowsRequest request) {
+        String shapeKey = shapeKey(request);
+        synchronized (filterPlans) {
+            FilterPlan plan = filterPlans.get(shapeKey);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        FilterPlan compiled = compile(shapeKey, request);
+        synchronized (filterPlans) {
+            filterPlans.putIfAbsent(shapeKey, compiled);
+            return filterPlans.get(shapeKey);
+        }
+    }
+
+    /**
+     * Returns the HQL for a parameterized Criteria query, rendering it only the first time the query shape is seen.
+     * @param queryShapeKey Key covering everything that affects the query structure (filter shape, sort, grouping, ...).
+     * @param criteria Builds the Criteria query; only invoked on a cache miss.
+     * @return The compiled query.
+     */
+    public CompiledQuery compiledQuery(String queryShapeKey, Supplier<? extends CriteriaQuery<?>> criteria) {
+        synchronized (compiledQueries) {
+            CompiledQuery compiled = compiledQueries.get(queryShapeKey);
+            if (compiled != null) {
+                return compiled;
+            }
+        }
+        CriteriaQuery<?> query = criteria.get();
+        List<String> aliases = new ArrayList<>();
+        if (query.getSelection() != null && query.getSelection().isCompoundSelection()) {
+            query.getSelection().getCompoundSelectionItems().forEach(s -> aliases.add(s.getAlias()));
+        }
+        String hql = null;
+        if (query instanceof SqmVisitableNode sqmNode) {
+            try {
+                hql = sqmNode.toHqlString();
+            } catch (RuntimeException e) {
+                logger.warn("Could not render criteria query to HQL, it will be executed as Criteria: {}", queryShapeKey, e);
+            }
+        }
+        CompiledQuery compiled = new CompiledQuery(hql, List.copyOf(aliases));
+        logger.debug("Compiled query plan for shape {}: {}", queryShapeKey, hql);
+        synchronized (compiledQueries) {
+            compiledQueries.putIfAbsent(queryShapeKey, compiled);
+        }
+        return compiled;
+    }
+
+    public void clear() {
+        synchronized (filterPlans) {
+            filterPlans.clear();
+        }
+        synchronized (compiledQueries) {
+            compiledQueries.clear();
+        }
+    }
+
+    /**
+     * Builds the shape key of the request's WHERE clause: group key columns (and whether each key is null)
+     * plus, per filtered field, its filter type, condition type and which of its values are present.
+     */
+    String shapeKey(ServerSideGetRowsRequest request) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("g:");
+        if (!CollectionUtils.isEmpty(request.getRowGroupCols()) && !CollectionUtils.isEmpty(request.getGroupKeys())) {
+            List<String> groupKeys = request.getGroupKeys();
+            for (int i = 0; i < groupKeys.size() && i < request.getRowGroupCols().size(); i++) {
+                sb.append(request.getRowGroupCols().get(i).getField()).append(groupKeys.get(i) == null ? "=null," : "=?,");
+            }
+        }
+        sb.append("|f:");
+        if (request.getFilterModel() != null) {
+            new TreeMap<>(request.getFilterModel()).forEach((field, fm) -> sb.append(field).append(':')
+                    .append(fm.getFilterType()).append(':')
+                    .append(fm.getType()).append(':')
+                    .append(StringUtils.hasText(fm.getFilter()) ? 'v' : '-')
+                    .append(fm.getFilterTo() != null ? 't' : '-')
+                    // Set filters: the bound list shape (padded IN size or array), never the values
+                    .append(CollectionUtils.isEmpty(fm.getValues()) ? "-" : "s" + setFilterStrategy.shapeOf(fm.getValues().size()))
+                    .append(','));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compiles the request's group keys and filter model into a FilterPlan.
+     * Mirrors the semantics of EmployeeService.buildWherePredicates, with values replaced by named parameters.
+     */
+    private FilterPlan compile(String shapeKey, ServerSideGetRowsRequest request) {
+        List<FilterPlan.Step> steps = new ArrayList<>();
+
+        // 1. Group Key Filters (parameters g0, g1, ...)
+        if (!CollectionUtils.isEmpty(request.getRowGroupCols()) && !CollectionUtils.isEmpty(request.getGroupKeys())) {
+            List<String> groupKeys = request.getGroupKeys();
+            for (int i = 0; i < groupKeys.size() && i < request.getRowGroupCols().size(); i++) {
+                compileGroupKey(steps, i, request.getRowGroupCols().get(i).getField(), groupKeys.get(i) == null);
+            }
+        }
+
+        // 2. Column Filters (parameters f0, f0to, f1, ...), in field order so parameter names are stable per shape
+        if (request.getFilterModel() != null) {
+            int index = 0;
+            for (String field : new TreeSet<>(request.getFilterModel().keySet())) {
+                var fm = request.getFilterModel().get(field);
+                compileFilter(steps, "f" + index++, field, fm.getFilterType(), fm.getType(),
+                        StringUtils.hasText(fm.getFilter()), fm.getFilterTo() != null, CollectionUtils.isEmpty(fm.getValues()) ? 0 : fm.getValues().size());
+            }
+        }
+
+        logger.debug("Compiled filter plan with {} steps for shape {}", steps.size(), shapeKey);
+        return new FilterPlan(shapeKey, steps);
+    }
+
+    private void compileGroupKey(List<FilterPlan.Step> steps, int level, String field, boolean isNullKey) {
+        String param = "g" + level;
+        if (isNullKey) {
+            steps.add(new FilterPlan.Step((cb, root) -> cb.isNull(root.get(field)), (request, bindings) -> {}));
+            return;
+        }
+        Class<?> javaType = javaTypeOf(field);
+        if (javaType.equals(String.class)) {
+            steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.equal(root.get(field), cb.parameter(String.class, param)),
+                    (request, bindings) -> bindings.put(param, request.getGroupKeys().get(level))));
+        } else if (javaType.equals(Integer.class)) {
+            steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.equal(root.get(field), cb.parameter(Integer.class, param)),
+                    // NumberFormatException makes the caller fall back to buildWherePredicates, which matches nothing
+                    (request, bindings) -> bindings.put(param, Integer.parseInt(request.getGroupKeys().get(level)))));
+        } else {
+            logger.warn("Unsupported group key type for field {}: {}", field, javaType.getSimpleName());
+            steps.add(new FilterPlan.Step((cb, root) -> cb.disjunction(), (request, bindings) -> {}));
+        }
+    }
+
+    private void compileFilter(List<FilterPlan.Step> steps, String param, String field, String filterType, String conditionType,
+                               boolean hasValue, boolean hasValueTo, int valueCount) {
+        Class<?> javaType = javaTypeOf(field);
+
+        if ("text".equals(filterType) && hasValue) {
+            if (!javaType.equals(String.class)) {
+                logger.warn("Attempted text filter on non-String column: {}", field);
+                return;
+            }
+            compileTextFilter(steps, param, field, conditionType);
+        } else if ("number".equals(filterType) && hasValue) {
+            if (!Number.class.isAssignableFrom(javaType)) {
+                logger.warn("Attempted number filter on non-numeric column: {}", field);
+                return;
+            }
+            compileNumberFilter(steps, param, field, conditionType, javaType, hasValueTo);
+        } else if ("date".equals(filterType) && hasValue) {
+            if (!javaType.equals(LocalDate.class)) {
+                logger.warn("Attempted date filter on non-LocalDate column: {}", field);
+                return;
+            }
+            compileDateFilter(steps, param, field, conditionType);
+        } else if ("set".equals(filterType) && valueCount > 0) {
+            compileSetFilter(steps, param, field, javaType, valueCount);
+        }
+    }
+
+    private void compileTextFilter(List<FilterPlan.Step> steps, String param, String field, String conditionType) {
+        switch (conditionType) {
+            // Unanchored patterns go through TextSearchSupport, which can route them to a trigram index
+            case "contains" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> textSearch.match(cb, root.get(field), field, cb.parameter(String.class, param), false),
+                    (request, bindings) -> bindings.put(param, "%" + lowerFilter(request, field) + "%")));
+            case "notContains" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> textSearch.match(cb, root.get(field), field, cb.parameter(String.class, param), true),
+                    (request, bindings) -> bindings.put(param, "%" + lowerFilter(request, field) + "%")));
+            case "equals" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.equal(cb.lower(root.get(field)), cb.parameter(String.class, param)),
+                    (request, bindings) -> bindings.put(param, lowerFilter(request, field))));
+            case "notEqual" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.notEqual(cb.lower(root.get(field)), cb.parameter(String.class, param)),
+                    (request, bindings) -> bindings.put(param, lowerFilter(request, field))));
+            case "startsWith" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.like(cb.lower(root.get(field)), cb.parameter(String.class, param)),
+                    (request, bindings) -> bindings.put(param, lowerFilter(request, field) + "%")));
+            case "endsWith" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> textSearch.match(cb, root.get(field), field, cb.parameter(String.class, param), false),
+                    (request, bindings) -> bindings.put(param, "%" + lowerFilter(request, field))));
+            case "blank" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.or(cb.isNull(root.get(field)), cb.equal(root.get(field), "")),
+                    (request, bindings) -> {}));
+            case "notBlank" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.and(cb.isNotNull(root.get(field)), cb.notEqual(root.get(field), "")),
+                    (request, bindings) -> {}));
+            default -> logger.warn("Unsupported text filter condition type: {}", conditionType);
+        }
+    }
+
+    private void compileNumberFilter(List<FilterPlan.Step> steps, String param, String field, String conditionType,
+                                     Class<?> javaType, boolean hasValueTo) {
+        // Blank checks need no value, so they work for every numeric type
+        if ("blank".equals(conditionType)) {
+            steps.add(new FilterPlan.Step((cb, root) -> cb.isNull(root.get(field)), (request, bindings) -> {}));
+            return;
+        }
+        if ("notBlank".equals(conditionType)) {
+            steps.add(new FilterPlan.Step((cb, root) -> cb.isNotNull(root.get(field)), (request, bindings) -> {}));
+            return;
+        }
+        // Basic type conversion - refine as needed for Float, Double, BigDecimal
+        if (!javaType.equals(Integer.class)) {
+            logger.warn("Unsupported number filter column type {} on field {}", javaType.getSimpleName(), field);
+            return;
+        }
+        FilterPlan.Binder bindValue = (request, bindings) ->
+                bindings.put(param, Integer.parseInt(request.getFilterModel().get(field).getFilter()));
+
+        switch (conditionType) {
+            case "equals" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.equal(root.get(field), cb.parameter(Integer.class, param)), bindValue));
+            case "notEqual" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.notEqual(root.get(field), cb.parameter(Integer.class, param)), bindValue));
+            case "lessThan" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.lt(root.get(field), cb.parameter(Integer.class, param)), bindValue));
+            case "lessThanOrEqual" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.le(root.get(field), cb.parameter(Integer.class, param)), bindValue));
+            case "greaterThan" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.gt(root.get(field), cb.parameter(Integer.class, param)), bindValue));
+            case "greaterThanOrEqual" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.ge(root.get(field), cb.parameter(Integer.class, param)), bindValue));
+            case "inRange" -> {
+                if (!hasValueTo) {
+                    logger.warn("Number 'inRange' filter requires both 'filter' and 'filterTo' values on field {}", field);
+                    return;
+                }
+                String paramTo = param + "to";
+                steps.add(new FilterPlan.Step(
+                        (cb, root) -> cb.and(cb.ge(root.get(field), cb.parameter(Integer.class, param)),
+                                             cb.le(root.get(field), cb.parameter(Integer.class, paramTo))),
+                        (request, bindings) -> {
+                            bindValue.bind(request, bindings);
+                            bindings.put(paramTo, request.getFilterModel().get(field).getFilterTo().intValue());
+                        }));
+            }
+            default -> logger.warn("Unsupported number filter condition type: {}", conditionType);
+        }
+    }
+
+    private void compileDateFilter(List<FilterPlan.Step> steps, String param, String field, String conditionType) {
+        // AG Grid date filter sends dates in 'YYYY-MM-DD' format by default; DateTimeParseException triggers the fallback path
+        FilterPlan.Binder bindValue = (request, bindings) ->
+                bindings.put(param, LocalDate.parse(request.getFilterModel().get(field).getFilter()));
+
+        switch (conditionType) {
+            case "equals" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.equal(root.get(field), cb.parameter(LocalDate.class, param)), bindValue));
+            case "notEqual" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.notEqual(root.get(field), cb.parameter(LocalDate.class, param)), bindValue));
+            case "lessThan" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.lessThan(root.<LocalDate>get(field), cb.parameter(LocalDate.class, param)), bindValue));
+            case "lessThanOrEqual" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.lessThanOrEqualTo(root.<LocalDate>get(field), cb.parameter(LocalDate.class, param)), bindValue));
+            case "greaterThan" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.greaterThan(root.<LocalDate>get(field), cb.parameter(LocalDate.class, param)), bindValue));
+            case "greaterThanOrEqual" -> steps.add(new FilterPlan.Step(
+                    (cb, root) -> cb.greaterThanOrEqualTo(root.<LocalDate>get(field), cb.parameter(LocalDate.class, param)), bindValue));
+            case "blank" -> steps.add(new FilterPlan.Step((cb, root) -> cb.isNull(root.get(field)), (request, bindings) -> {}));
+            case "notBlank" -> steps.add(new FilterPlan.Step((cb, root) -> cb.isNotNull(root.get(field)), (request, bindings) -> {}));
+            default -> logger.warn("Unsupported date filter condition type: {}", conditionType);
+        }
+    }
+
+    private void compileSetFilter(List<FilterPlan.Step> steps, String param, String field, Class<?> javaType, int valueCount) {
+        // The value count is part of the shape key only through its list shape (see SetFilterStrategy)
+        if (javaType.equals(String.class)) {
+            steps.add(new FilterPlan.Step(
+                    (cb, root) -> setFilterStrategy.in(cb, root.get(field), String.class, param, valueCount),
+                    (request, bindings) -> bindings.put(param,
+                            setFilterStrategy.bindValue(new ArrayList<>(request.getFilterModel().get(field).getValues()), String.class))));
+        } else if (javaType.equals(Integer.class)) {
+            steps.add(new FilterPlan.Step(
+                    (cb, root) -> setFilterStrategy.in(cb, root.get(field), Integer.class, param, valueCount),
+                    (request, bindings) -> {
+                        List<Integer> values = new ArrayList<>();
+                        for (String val : request.getFilterModel().get(field).getValues()) {
+                            values.add(Integer.parseInt(val));
+                        }
+                        bindings.put(param, setFilterStrategy.bindValue(values, Integer.class));
+                    }));
+        } else {
+            logger.warn("Unsupported column type for set filter: {}", javaType.getSimpleName());
+        }
+    }
+
+    private static String lowerFilter(ServerSideGetRowsRequest request, String field) {
+        return request.getFilterModel().get(field).getFilter().toLowerCase();
+    }
+
+    private Class<?> javaTypeOf(String field) {
+        // Throws IllegalArgumentException for unknown fields, like root.get(field) does
+        return entityManager.getMetamodel().entity(Employee.class).getAttribute(field).getJavaType();
+    }
+
+    private <V> Map<String, V> lruMap() {
+        return new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.aggridssremployee.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the total row count of a (filterModel, rowGroupCols, groupKeys) combination, so that
+ * scrolling through a view only pays for the COUNT query once per TTL instead of once per block.
+ * Bounded by entry count (LRU eviction) and by age (TTL).
+ */
+@Component
+public class RowCountCache {
+
+    private record Entry(long count, long expiresAtNanos) {}
+
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    // Access-ordered LinkedHashMap gives us a simple LRU; guarded by 'this'
+    private final LinkedHashMap<String, Entry> counts;
+
+    // Bumped by clear(); a put computed from data read before the last clear() is dropped
+    private long generation;
+
+    public RowCountCache(@Value("${employee.ssrm.count-cache.ttl:30s}") Duration ttl,
+                         @Value("${employee.ssrm.count-cache.max-entries:5000}") int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.counts = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > RowCountCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param filterSignature Signature from {@link SsrmRequests#filterSignature}.
+     * @return The cached count, or null if absent or expired.
+     */
+    public synchronized Long get(String filterSignature) {
+        Entry entry = counts.get(filterSignature);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos() > 0) {
+            counts.remove(filterSignature);
+            return null;
+        }
+        return entry.count();
+    }
+
+    /**
+     * @return The current generation; capture it before running the count that will be put.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * @param filterSignature Signature from {@link SsrmRequests#filterSignature}.
+     * @param count The row count.
+     * @param generation The {@link #generation()} captured before the count was read.
+     */
+    public synchronized void put(String filterSignature, long count, long generation) {
+        if (generation != this.generation) {
+            // Counted before the last table change, already stale
+            return;
+        }
+        counts.put(filterSignature, new Entry(count, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void clear() {
+        counts.clear();
+        generation++;
+    }
+
+    @EventListener
+    public void onTableDataChanged(TableDataChangedEvent event) {
+        clear();
+    }
+}
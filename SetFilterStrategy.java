@@ -0,0 +1,154 @@
+package com.example.aggridssremployee.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Decides how a set filter's value list is sent to the database, so that the SQL text only depends on a
+ * small number of list "shapes" instead of the exact number of ticked values:
+ * <ul>
+ *     <li>Up to array-threshold values: col IN (...), with the list padded (by repeating its last value)
+ *     to the next power of two. 1..64 values produce at most 7 distinct statements.</li>
+ *     <li>More values (PostgreSQL only): col = ANY(?), with all values bound as one array parameter. One
+ *     statement for any list length, and no planning cost proportional to thousands of IN items.</li>
+ * </ul>
+ * The shape (bucket size or array) is part of the filter plan shape key, see PredicatePlanCache. Queries built
+ * from literal predicates (exports, group trees, value lists, pivot keys, the plan fallback) use the same
+ * shapes through {@link #in(CriteriaBuilder, Path, Class, List)}.
+ */
+@Component
+public class SetFilterStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(SetFilterStrategy.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int arrayThreshold;
+    private final boolean arrayBindingEnabled;
+
+    private volatile Boolean arraysSupported;
+
+    public SetFilterStrategy(@Value("${employee.ssrm.set-filter.array-threshold:64}") int arrayThreshold,
+                             @Value("${employee.ssrm.set-filter.array-binding.enabled:true}") boolean arrayBindingEnabled) {
+        this.arrayThreshold = arrayThreshold;
+        this.arrayBindingEnabled = arrayBindingEnabled;
+    }
+
+    /**
+     * @param size Number of values in the set filter.
+     * @return The shape of the bound list: "a" for an array parameter, otherwise "p" plus the padded IN size.
+     */
+    public String shapeOf(int size) {
+        return useArray(size) ? "a" : "p" + paddedSize(size);
+    }
+
+    /**
+     * Builds the membership predicate for a named parameter bound with {@link #bindValue}.
+     * @param cb CriteriaBuilder instance.
+     * @param path The filtered column.
+     * @param elementType Java type of the column (String or Integer).
+     * @param param The parameter name.
+     * @param size Number of values (must give the same shape as the values later bound).
+     * @return col = ANY(:param) or col IN (:param).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Predicate in(CriteriaBuilder cb, Path<?> path, Class<?> elementType, String param, int size) {
+        if (useArray(size)) {
+            Class<?> arrayType = Array.newInstance(elementType, 0).getClass();
+            return cb.isTrue(cb.function(SsrmHibernateFunctions.IN_ARRAY, Boolean.class, path, cb.parameter(arrayType, param)));
+        }
+        return path.in(cb.parameter((Class) Collection.class, param));
+    }
+
+    /**
+     * Builds the membership predicate with the values bound directly, for queries without named parameters.
+     * @param cb CriteriaBuilder instance.
+     * @param path The filtered column.
+     * @param elementType Java type of the column (String or Integer).
+     * @param values The (already type-converted) set filter values.
+     * @return col = ANY(?) with the values as one array parameter, or col IN (...) padded to its bucket size.
+     */
+    public Predicate in(CriteriaBuilder cb, Path<?> path, Class<?> elementType, List<?> values) {
+        if (useArray(values.size()) && cb instanceof HibernateCriteriaBuilder hcb) {
+            // value() creates a parameter that Hibernate binds itself
+            return cb.isTrue(cb.function(SsrmHibernateFunctions.IN_ARRAY, Boolean.class, path, hcb.value(bindValue(values, elementType))));
+        }
+        return path.in(pad(values));
+    }
+
+    /**
+     * @param values The (already type-converted) set filter values.
+     * @param elementType Java type of the column.
+     * @return The value to bind to the parameter of {@link #in}: an array, or the list padded to its bucket size.
+     */
+    public Object bindValue(List<?> values, Class<?> elementType) {
+        if (useArray(values.size())) {
+            Object array = Array.newInstance(elementType, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                Array.set(array, i, values.get(i));
+            }
+            return array;
+        }
+        return pad(values);
+    }
+
+    /**
+     * Pads an IN list to the next power of two by repeating its last value (duplicates do not change the result).
+     * @param values The values.
+     * @return The padded list (the input itself if it already has a bucket size).
+     */
+    public <T> List<T> pad(List<T> values) {
+        int padded = paddedSize(values.size());
+        if (values.isEmpty() || padded == values.size()) {
+            return values;
+        }
+        List<T> result = new ArrayList<>(padded);
+        result.addAll(values);
+        T last = values.get(values.size() - 1);
+        while (result.size() < padded) {
+            result.add(last);
+        }
+        return result;
+    }
+
+    private static int paddedSize(int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private boolean useArray(int size) {
+        return arrayBindingEnabled && size > arrayThreshold && supportsArrays();
+    }
+
+    private boolean supportsArrays() {
+        Boolean supported = arraysSupported;
+        if (supported == null) {
+            try {
+                supported = entityManager.getEntityManagerFactory()
+                        .unwrap(SessionFactoryImplementor.class)
+                        .getJdbcServices()
+                        .getDialect() instanceof PostgreSQLDialect;
+            } catch (Exception e) {
+                logger.warn("Could not determine the dialect, set filters use IN lists only", e);
+                supported = false;
+            }
+            arraysSupported = supported;
+        }
+        return supported;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
+
+/**
+ * Result of one request of a /ssrm-data/batch call (see EmployeeService.getDataBatch).
+ * @param response The block, or null if it failed.
+ * @param error Why the block failed, or null on success; the grid should fail just this block.
+ */
+public record SsrmBatchResult(ServerSideGetRowsResponse response, String error) {
+
+    static SsrmBatchResult of(ServerSideGetRowsResponse response) {
+        return new SsrmBatchResult(response, null);
+    }
+
+    static SsrmBatchResult failed(String error) {
+        return new SsrmBatchResult(null, error);
+    }
+}
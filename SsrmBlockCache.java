@@ -0,0 +1,124 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process cache of fully formatted SSRM responses, keyed by the canonical block signature.
+ * Popular views (e.g. the first block of the default view) are served without touching the database.
+ * Eviction is LRU, bounded by the estimated heap size of the cached rows.
+ */
+@Component
+public class SsrmBlockCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SsrmBlockCache.class);
+
+    // Rough per-object overheads used to estimate the retained size of a cached block
+    private static final long ROW_OVERHEAD_BYTES = 64;
+    private static final long VALUE_OVERHEAD_BYTES = 48;
+
+    private record Entry(ServerSideGetRowsResponse response, long weightBytes) {}
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private long currentBytes;
+
+    // Bumped by clear(); a put computed from data read before the last clear() is dropped
+    private long generation;
+
+    // Access-ordered LinkedHashMap gives us LRU iteration order; guarded by 'this'
+    private final LinkedHashMap<String, Entry> blocks = new LinkedHashMap<>(256, 0.75f, true);
+
+    public SsrmBlockCache(@Value("${employee.ssrm.block-cache.enabled:true}") boolean enabled,
+                          @Value("${employee.ssrm.block-cache.max-bytes:67108864}") long maxBytes) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param request The SSRM request DTO.
+     * @return The cached response for exactly this block, or null.
+     */
+    public synchronized ServerSideGetRowsResponse get(ServerSideGetRowsRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = blocks.get(SsrmRequests.blockSignature(request));
+        return entry != null ? entry.response() : null;
+    }
+
+    /**
+     * @return The current generation; capture it before reading the data of a block that will be put.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * @param request The SSRM request DTO.
+     * @param response The response for exactly this block.
+     * @param generation The {@link #generation()} captured before the block's data was read.
+     */
+    public synchronized void put(ServerSideGetRowsRequest request, ServerSideGetRowsResponse response, long generation) {
+        if (!enabled || generation != this.generation) {
+            // The table changed (and the cache was cleared) while the block was being read
+            return;
+        }
+        long weight = estimateWeight(response.getRows());
+        if (weight > maxBytes) {
+            // A single block larger than the whole budget would just flush everything else
+            return;
+        }
+        Entry previous = blocks.put(SsrmRequests.blockSignature(request), new Entry(response, weight));
+        if (previous != null) {
+            currentBytes -= previous.weightBytes();
+        }
+        currentBytes += weight;
+
+        Iterator<Entry> lru = blocks.values().iterator();
+        while (currentBytes > maxBytes && lru.hasNext()) {
+            currentBytes -= lru.next().weightBytes();
+            lru.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        blocks.clear();
+        currentBytes = 0;
+        generation++;
+    }
+
+    @EventListener
+    public void onTableDataChanged(TableDataChangedEvent event) {
+        logger.debug("Invalidating SSRM block cache after changes to table {}", event.tableName());
+        clear();
+    }
+
+    private static long estimateWeight(List<Map<String, Object>> rows) {
+        long bytes = 0;
+        for (Map<String, Object> row : rows) {
+            bytes += ROW_OVERHEAD_BYTES;
+            for (Object value : row.values()) {
+                bytes += VALUE_OVERHEAD_BYTES;
+                if (value instanceof CharSequence text) {
+                    bytes += 2L * text.length();
+                }
+            }
+        }
+        return bytes;
+    }
+}
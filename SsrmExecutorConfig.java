@@ -0,0 +1,61 @@
+package com.example.aggridssremployee.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executors used by the SSRM endpoint for work that runs next to the request thread.
+ */
+@Configuration
+public class SsrmExecutorConfig {
+
+    /**
+     * Runs getTotalRowCount in parallel with the data query (employee.ssrm.parallel-count.enabled).
+     * Every task holds its own database connection while it runs, so the pool is bounded well below the
+     * connection pool size. When the queue is full the task is rejected and the count runs on the request thread.
+     */
+    @Bean(name = "ssrmCountExecutor")
+    public ThreadPoolTaskExecutor ssrmCountExecutor(@Value("${employee.ssrm.parallel-count.pool-size:4}") int poolSize,
+                                                    @Value("${employee.ssrm.parallel-count.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ssrm-count-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs speculative next-block prefetches (see BlockPrefetcher). The BlockPrefetcher caps concurrency
+     * with its own semaphore, the pool only has to be at least that large.
+     */
+    @Bean(name = "ssrmPrefetchExecutor")
+    public ThreadPoolTaskExecutor ssrmPrefetchExecutor(@Value("${employee.ssrm.prefetch.max-concurrent:4}") int maxConcurrent) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(maxConcurrent);
+        executor.setThreadNamePrefix("ssrm-prefetch-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs grid exports (see SsrmExportService). Each export holds a database connection and a cursor for its
+     * whole duration, so only a few run at once and a short queue absorbs bursts; beyond that exports are rejected.
+     */
+    @Bean(name = "ssrmExportExecutor")
+    public ThreadPoolTaskExecutor ssrmExportExecutor(@Value("${employee.ssrm.export.pool-size:2}") int poolSize,
+                                                     @Value("${employee.ssrm.export.queue-capacity:4}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ssrm-export-");
+        executor.initialize();
+        return executor;
+    }
+}
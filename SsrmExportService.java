@@ -0,0 +1,307 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs grid exports (the filtered and sorted leaf rows as CSV or XLSX) as background jobs.
+ * <p>
+ * Each export reads one forward-only cursor (EmployeeService.exportData) and writes the rows straight to a
+ * temporary file, so memory stays constant regardless of the row count: CSV is written line by line, XLSX
+ * through POI's streaming SXSSF workbook, which keeps only a window of rows in memory. Jobs run on the
+ * bounded ssrmExportExecutor; when it is saturated new exports are rejected instead of queuing without limit.
+ * Clients poll the job for progress and download the file once it is COMPLETED.
+ */
+@Component
+public class SsrmExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SsrmExportService.class);
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    public enum Status { PENDING, RUNNING, COMPLETED, FAILED }
+
+    /**
+     * Progress snapshot of an export job, as returned to the client.
+     * @param jobId The job id.
+     * @param format The export format.
+     * @param status The job status.
+     * @param rowsWritten Rows written so far (the total once COMPLETED).
+     * @param error The failure message if FAILED, otherwise null.
+     */
+    public record ExportStatus(UUID jobId, Format format, Status status, long rowsWritten, String error) {}
+
+    private static final class ExportJob {
+        private final UUID jobId;
+        private final Format format;
+        private final Path file;
+        private final Instant createdAt = Instant.now();
+        private volatile Status status = Status.PENDING;
+        private volatile long rowsWritten;
+        private volatile String error;
+
+        private ExportJob(UUID jobId, Format format, Path file) {
+            this.jobId = jobId;
+            this.format = format;
+            this.file = file;
+        }
+
+        private ExportStatus snapshot() {
+            return new ExportStatus(jobId, format, status, rowsWritten, error);
+        }
+    }
+
+    private final EmployeeService employeeService;
+    private final TaskExecutor exportExecutor;
+    private final Path exportDir;
+    private final Duration retention;
+
+    private final Map<UUID, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    public SsrmExportService(EmployeeService employeeService,
+                             @Qualifier("ssrmExportExecutor") TaskExecutor exportExecutor,
+                             @Value("${employee.ssrm.export.dir:${java.io.tmpdir}}") String exportDir,
+                             @Value("${employee.ssrm.export.retention:1h}") Duration retention) {
+        this.employeeService = employeeService;
+        this.exportExecutor = exportExecutor;
+        this.exportDir = Paths.get(exportDir);
+        this.retention = retention;
+    }
+
+    /**
+     * Starts an export in the background.
+     * @param request The grid's current SSRM request (filterModel, sortModel, and optionally group keys); the row range is ignored.
+     * @param format The file format.
+     * @return The job id to poll.
+     * @throws IllegalStateException If the export executor is saturated.
+     */
+    public UUID submit(ServerSideGetRowsRequest request, Format format) {
+        purgeExpired();
+        UUID jobId = UUID.randomUUID();
+        ExportJob job = new ExportJob(jobId, format, exportDir.resolve("employees-" + jobId + "." + format.extension()));
+        jobs.put(jobId, job);
+        try {
+            exportExecutor.execute(() -> run(job, request));
+        } catch (TaskRejectedException e) {
+            jobs.remove(jobId);
+            throw new IllegalStateException("Too many exports running, try again later", e);
+        }
+        return jobId;
+    }
+
+    /**
+     * @return The job's progress, or null for an unknown (or expired) job.
+     */
+    public ExportStatus getStatus(UUID jobId) {
+        ExportJob job = jobs.get(jobId);
+        return job != null ? job.snapshot() : null;
+    }
+
+    /**
+     * @return The exported file of a COMPLETED job, or null if the job is unknown or not completed.
+     */
+    public Path getFile(UUID jobId) {
+        ExportJob job = jobs.get(jobId);
+        return job != null && job.status == Status.COMPLETED ? job.file : null;
+    }
+
+    private void run(ExportJob job, ServerSideGetRowsRequest request) {
+        job.status = Status.RUNNING;
+        long started = System.nanoTime();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(job.file))) {
+            SsrmRowWriter writer = job.format == Format.XLSX ? new XlsxRowWriter(out) : new CsvRowWriter(out);
+            job.rowsWritten = employeeService.exportData(request, writer, rows -> job.rowsWritten = rows);
+            job.status = Status.COMPLETED;
+            logger.info("Export {} ({}) completed: {} rows in {} ms", job.jobId, job.format, job.rowsWritten,
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Export {} failed after {} rows", job.jobId, job.rowsWritten, e);
+            job.error = e.getMessage();
+            job.status = Status.FAILED;
+            deleteQuietly(job.file);
+        }
+    }
+
+    private void purgeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            boolean expired = job.createdAt.isBefore(cutoff) && job.status != Status.RUNNING && job.status != Status.PENDING;
+            if (expired) {
+                deleteQuietly(job.file);
+            }
+            return expired;
+        });
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete export file {}", file, e);
+        }
+    }
+
+    /**
+     * RFC 4180 CSV: header line from the first row's fields, values quoted when needed.
+     */
+    private static final class CsvRowWriter implements SsrmRowWriter {
+        private final Writer out;
+        private boolean headerWritten;
+
+        private CsvRowWriter(OutputStream out) {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void writeRow(List<String> fields, Object[] values) throws IOException {
+            if (!headerWritten) {
+                writeLine(fields.toArray(), fields.size());
+                headerWritten = true;
+            }
+            writeLine(values, fields.size());
+        }
+
+        @Override
+        public void finish(int lastRow, List<String> pivotResultFields) throws IOException {
+            out.flush();
+        }
+
+        private void writeLine(Object[] values, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(escape(values[i]));
+            }
+            out.write("\r\n");
+        }
+
+        private static String escape(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+            // Text starting with a formula character would be evaluated when the file is opened in a spreadsheet
+            if (value instanceof String && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+                text = "'" + text;
+            }
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                return '"' + text.replace("\"", "\"\"") + '"';
+            }
+            return text;
+        }
+    }
+
+    /**
+     * XLSX through SXSSF: rows beyond the in-memory window are flushed to a temporary file by POI, and a new
+     * sheet is started when one reaches Excel's row limit.
+     */
+    private static final class XlsxRowWriter implements SsrmRowWriter {
+        // Excel's limit is 1,048,576 rows per sheet, including the header row
+        private static final int MAX_ROWS_PER_SHEET = 1_048_575;
+        private static final int ROW_ACCESS_WINDOW = 100;
+
+        private final OutputStream out;
+        private final SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        private final CellStyle dateStyle;
+        private Sheet sheet;
+        private int rowsInSheet;
+
+        private XlsxRowWriter(OutputStream out) {
+            this.out = out;
+            this.dateStyle = workbook.createCellStyle();
+            this.dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+        }
+
+        @Override
+        public void writeRow(List<String> fields, Object[] values) {
+            if (sheet == null || rowsInSheet >= MAX_ROWS_PER_SHEET) {
+                sheet = workbook.createSheet("Employees " + (workbook.getNumberOfSheets() + 1));
+                Row header = sheet.createRow(0);
+                for (int i = 0; i < fields.size(); i++) {
+                    header.createCell(i).setCellValue(fields.get(i));
+                }
+                rowsInSheet = 0;
+            }
+            Row row = sheet.createRow(++rowsInSheet);
+            for (int i = 0; i < fields.size(); i++) {
+                Object value = values[i];
+                if (value == null) {
+                    continue;
+                }
+                Cell cell = row.createCell(i);
+                if (value instanceof Number number) {
+                    cell.setCellValue(number.doubleValue());
+                } else if (value instanceof LocalDate date) {
+                    cell.setCellValue(date);
+                    cell.setCellStyle(dateStyle);
+                } else {
+                    cell.setCellValue(value.toString());
+                }
+            }
+        }
+
+        @Override
+        public void finish(int lastRow, List<String> pivotResultFields) throws IOException {
+            try {
+                if (sheet == null) {
+                    workbook.createSheet("Employees 1");
+                }
+                workbook.write(out);
+            } finally {
+                // Removes the temporary files SXSSF flushed rows to
+                workbook.dispose();
+                workbook.close();
+            }
+        }
+    }
+}
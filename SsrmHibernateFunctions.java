@@ -0,0 +1,24 @@
+package com.example.aggridssremployee.service;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers the HQL functions the SSRM queries need beyond Hibernate's built-in ones.
+ * Hibernate discovers this class through META-INF/services/org.hibernate.boot.model.FunctionContributor.
+ */
+public class SsrmHibernateFunctions implements FunctionContributor {
+
+    /**
+     * ssrm_in_array(col, :array) renders as (col = any(?)), with the whole value list bound as one
+     * PostgreSQL array parameter. Unlike array_contains (array @> array[col]) this form can use a B-tree index on col.
+     */
+    public static final String IN_ARRAY = "ssrm_in_array";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functions) {
+        functions.getFunctionRegistry().registerPattern(IN_ARRAY, "(?1 = any(?2))",
+                functions.getTypeConfiguration().getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN));
+    }
+}
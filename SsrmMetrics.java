@@ -0,0 +1,157 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the SSRM endpoint, exposed through Actuator (/actuator/metrics, /actuator/prometheus).
+ *
+ * - ssrm.phase (timer, percentile histogram): time per phase (predicate_build, query_build, data_query,
+ *   count_query, format, stream, serialize, export), tagged with the request kind
+ * - ssrm.phase.shape (timer, no histogram): the same times, additionally tagged with the filter shape
+ * - ssrm.cache (counter): lookups per cache (block, row_count, keyset_anchor, group_summary), tagged hit/miss
+ * - ssrm.rows (distribution summary): rows returned per block, tagged with the request kind
+ *
+ * Tags are kept low-cardinality: the request kind is one of group/leafUnderGroup/flat and the filter
+ * shape only contains field names and filter/condition types, never filter values. Field names come from
+ * the client, so only the first MAX_FILTER_SHAPES distinct shapes get their own tag value, later ones are "other".
+ * A percentile histogram adds dozens of bucket series per tag combination, so the filter shape is only put on
+ * the plain timer (count, sum, max) and the histogram stays per phase and kind.
+ */
+@Component
+public class SsrmMetrics {
+
+    public static final String PHASE_PREDICATE_BUILD = "predicate_build";
+    public static final String PHASE_QUERY_BUILD = "query_build";
+    public static final String PHASE_DATA_QUERY = "data_query";
+    public static final String PHASE_COUNT_QUERY = "count_query";
+    public static final String PHASE_FORMAT = "format";
+    public static final String PHASE_STREAM = "stream";
+    public static final String PHASE_SERIALIZE = "serialize";
+    public static final String PHASE_EXPORT = "export";
+
+    public static final String CACHE_BLOCK = "block";
+    public static final String CACHE_ROW_COUNT = "row_count";
+    public static final String CACHE_KEYSET_ANCHOR = "keyset_anchor";
+    public static final String CACHE_GROUP_SUMMARY = "group_summary";
+
+    private static final int MAX_FILTER_SHAPES = 50;
+
+    private final MeterRegistry registry;
+
+    private final Set<String> knownFilterShapes = ConcurrentHashMap.newKeySet();
+
+    public SsrmMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Starts timing a phase; pass the sample to {@link #recordPhase} when the phase ends.
+     */
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Stops the sample and records it under the given phase, tagged with the request's kind (and, without
+     * histogram, its filter shape).
+     * @param sample The sample returned by {@link #start()}.
+     * @param phase One of the PHASE_* constants.
+     * @param request The SSRM request DTO the phase belongs to.
+     */
+    public void recordPhase(Timer.Sample sample, String phase, ServerSideGetRowsRequest request) {
+        String kind = requestKind(request);
+        long nanos = sample.stop(Timer.builder("ssrm.phase")
+                .description("Time spent per SSRM request phase")
+                .tag("phase", phase)
+                .tag("kind", kind)
+                .publishPercentileHistogram()
+                .register(registry));
+        Timer.builder("ssrm.phase.shape")
+                .description("Time spent per SSRM request phase and filter shape")
+                .tag("phase", phase)
+                .tag("kind", kind)
+                .tag("filterShape", boundedFilterShape(request))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a cache lookup.
+     * @param cache One of the CACHE_* constants.
+     * @param hit True if the lookup was a hit.
+     */
+    public void cacheLookup(String cache, boolean hit) {
+        Counter.builder("ssrm.cache")
+                .description("SSRM cache lookups")
+                .tag("cache", cache)
+                .tag("result", hit ? "hit" : "miss")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Records the number of rows returned for one block.
+     */
+    public void rowsReturned(ServerSideGetRowsRequest request, int rows) {
+        DistributionSummary.builder("ssrm.rows")
+                .description("Rows returned per SSRM block")
+                .tag("kind", requestKind(request))
+                .register(registry)
+                .record(rows);
+    }
+
+    private String boundedFilterShape(ServerSideGetRowsRequest request) {
+        String shape = filterShape(request);
+        if (knownFilterShapes.contains(shape)) {
+            return shape;
+        }
+        // Racy by a few entries at most, which is fine for a cardinality guard
+        if (knownFilterShapes.size() < MAX_FILTER_SHAPES) {
+            knownFilterShapes.add(shape);
+            return shape;
+        }
+        return "other";
+    }
+
+    /**
+     * @return "group" for a group level, "leafUnderGroup" for leaf rows under the deepest group, "flat" without grouping.
+     */
+    static String requestKind(ServerSideGetRowsRequest request) {
+        if (CollectionUtils.isEmpty(request.getRowGroupCols())) {
+            return "flat";
+        }
+        int level = CollectionUtils.isEmpty(request.getGroupKeys()) ? 0 : request.getGroupKeys().size();
+        return level == request.getRowGroupCols().size() ? "leafUnderGroup" : "group";
+    }
+
+    /**
+     * @return The filtered fields with their filter and condition types (e.g. "department:set,name:text:contains"), or "none".
+     */
+    static String filterShape(ServerSideGetRowsRequest request) {
+        if (CollectionUtils.isEmpty(request.getFilterModel())) {
+            return "none";
+        }
+        StringBuilder sb = new StringBuilder();
+        new TreeMap<>(request.getFilterModel()).forEach((field, filterModel) -> {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(field).append(':').append(filterModel.getFilterType());
+            if (filterModel.getType() != null) {
+                sb.append(':').append(filterModel.getType());
+            }
+        });
+        return sb.toString();
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Helpers for deriving canonical keys from an AG Grid SSRM request.
+ * Two requests that would produce the same SQL (ignoring the requested row range where noted)
+ * produce the same signature, regardless of map ordering or set filter value ordering.
+ */
+public final class SsrmRequests {
+
+    // Separator that cannot reasonably appear in field names or filter values sent by the grid
+    private static final char SEP = '\u001f';
+
+    private SsrmRequests() {
+    }
+
+    /**
+     * Signature of the "view" the grid is looking at: filters, sort, grouping and group keys.
+     * Blocks of the same view differ only by their row range.
+     * @param request The SSRM request DTO.
+     * @return A canonical string identifying the view.
+     */
+    public static String viewSignature(ServerSideGetRowsRequest request) {
+        StringBuilder sb = new StringBuilder(128);
+        appendFilterModel(sb, request);
+        sb.append("|s:");
+        appendSortModel(sb, request);
+        appendGrouping(sb, request);
+        appendValueCols(sb, request);
+        return sb.toString();
+    }
+
+    /**
+     * Signature of the grid's configuration regardless of the group node being loaded: filters, sort,
+     * row group columns and value columns, but not the group keys. Blocks of sibling group nodes share it.
+     * @param request The SSRM request DTO.
+     * @return A canonical string identifying the grid configuration.
+     */
+    public static String gridSignature(ServerSideGetRowsRequest request) {
+        StringBuilder sb = new StringBuilder(128);
+        appendFilterModel(sb, request);
+        sb.append("|s:");
+        appendSortModel(sb, request);
+        sb.append("|g:");
+        if (!CollectionUtils.isEmpty(request.getRowGroupCols())) {
+            for (ServerSideGetRowsRequest.ColumnVO col : request.getRowGroupCols()) {
+                sb.append(col.getField()).append(SEP);
+            }
+        }
+        appendValueCols(sb, request);
+        return sb.toString();
+    }
+
+    /**
+     * Signature of the query structure apart from the WHERE clause: sort model, row group columns and
+     * the grouping level. Combined with a filter plan shape it identifies a parameterized query.
+     * @param request The SSRM request DTO.
+     * @return A canonical string identifying the query structure.
+     */
+    public static String structureSignature(ServerSideGetRowsRequest request) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("s:");
+        appendSortModel(sb, request);
+        sb.append("|g:");
+        if (!CollectionUtils.isEmpty(request.getRowGroupCols())) {
+            for (ServerSideGetRowsRequest.ColumnVO col : request.getRowGroupCols()) {
+                sb.append(col.getField()).append(SEP);
+            }
+        }
+        sb.append("|l:").append(CollectionUtils.isEmpty(request.getGroupKeys()) ? 0 : request.getGroupKeys().size());
+        appendValueCols(sb, request);
+        return sb.toString();
+    }
+
+    /**
+     * Signature of a single block: the view plus the requested row range.
+     * @param request The SSRM request DTO.
+     * @return A canonical string identifying the block.
+     */
+    public static String blockSignature(ServerSideGetRowsRequest request) {
+        return viewSignature(request) + "|r:" + request.getStartRow() + '-' + request.getEndRow();
+    }
+
+    /**
+     * Signature of everything that influences the number of rows at the requested level:
+     * filters, row group columns and group keys. Sorting and row range are irrelevant for counts.
+     * @param request The SSRM request DTO.
+     * @return A canonical string identifying the row set being counted.
+     */
+    public static String filterSignature(ServerSideGetRowsRequest request) {
+        StringBuilder sb = new StringBuilder(128);
+        appendFilterModel(sb, request);
+        appendGrouping(sb, request);
+        return sb.toString();
+    }
+
+    /**
+     * Signature of a set filter value list: the column plus every filter except the column's own.
+     * @param request The SSRM request DTO carrying the filter model (may be null).
+     * @param field The column whose distinct values are listed.
+     * @return A canonical string identifying the value list.
+     */
+    public static String valuesSignature(ServerSideGetRowsRequest request, String field) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(field).append('|');
+        if (request == null) {
+            return sb.append("f:").toString();
+        }
+        appendFilterModel(sb, request, field);
+        return sb.toString();
+    }
+
+    private static void appendFilterModel(StringBuilder sb, ServerSideGetRowsRequest request) {
+        appendFilterModel(sb, request, null);
+    }
+
+    private static void appendFilterModel(StringBuilder sb, ServerSideGetRowsRequest request, String excludedField) {
+        sb.append("f:");
+        if (request.getFilterModel() == null || request.getFilterModel().isEmpty()) {
+            return;
+        }
+        // TreeMap so that the JSON key order sent by the browser does not matter
+        new TreeMap<>(request.getFilterModel()).forEach((field, filterModel) -> {
+            if (field.equals(excludedField)) {
+                return;
+            }
+            sb.append(field).append(SEP)
+              .append(filterModel.getFilterType()).append(SEP)
+              .append(filterModel.getType()).append(SEP)
+              .append(filterModel.getFilter()).append(SEP)
+              .append(filterModel.getFilterTo()).append(SEP);
+            if (!CollectionUtils.isEmpty(filterModel.getValues())) {
+                // Set filter values are a set, the order the user ticked them in is irrelevant
+                List<String> values = new ArrayList<>(filterModel.getValues());
+                values.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+                values.forEach(v -> sb.append(v).append(SEP));
+            }
+            sb.append(';');
+        });
+    }
+
+    /**
+     * Signature of the pivot key discovery: pivot columns plus the filter model (group keys are
+     * deliberately excluded, every group of a view must get the same pivot result columns).
+     * @param request The SSRM request DTO.
+     * @return A canonical string identifying the set of pivot keys.
+     */
+    public static String pivotKeySignature(ServerSideGetRowsRequest request) {
+        StringBuilder sb = new StringBuilder(64);
+        appendFilterModel(sb, request);
+        appendPivot(sb, request);
+        return sb.toString();
+    }
+
+    private static void appendValueCols(StringBuilder sb, ServerSideGetRowsRequest request) {
+        sb.append("|v:");
+        if (!CollectionUtils.isEmpty(request.getValueCols())) {
+            for (ServerSideGetRowsRequest.ColumnVO col : request.getValueCols()) {
+                sb.append(col.getField()).append(SEP).append(col.getAggFunc()).append(SEP);
+            }
+        }
+        appendPivot(sb, request);
+    }
+
+    private static void appendPivot(StringBuilder sb, ServerSideGetRowsRequest request) {
+        sb.append("|p:");
+        if (request.isPivotMode() && !CollectionUtils.isEmpty(request.getPivotCols())) {
+            for (ServerSideGetRowsRequest.ColumnVO col : request.getPivotCols()) {
+                sb.append(col.getField()).append(SEP);
+            }
+        }
+    }
+
+    private static void appendSortModel(StringBuilder sb, ServerSideGetRowsRequest request) {
+        if (!CollectionUtils.isEmpty(request.getSortModel())) {
+            for (ServerSideGetRowsRequest.SortModel sm : request.getSortModel()) {
+                sb.append(sm.getColId()).append(SEP).append(sm.getSort()).append(SEP);
+            }
+        }
+    }
+
+    private static void appendGrouping(StringBuilder sb, ServerSideGetRowsRequest request) {
+        sb.append("|g:");
+        if (!CollectionUtils.isEmpty(request.getRowGroupCols())) {
+            for (ServerSideGetRowsRequest.ColumnVO col : request.getRowGroupCols()) {
+                sb.append(col.getField()).append(SEP);
+            }
+        }
+        sb.append("|k:");
+        if (!CollectionUtils.isEmpty(request.getGroupKeys())) {
+            for (String key : request.getGroupKeys()) {
+                sb.append(key).append(SEP);
+            }
+        }
+    }
+}
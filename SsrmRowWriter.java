@@ -0,0 +1,27 @@
+package com.example.aggridssremployee.service;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the rows of an SSRM block one by one, as they are read from the database cursor
+ * (see EmployeeService.streamData). Implementations write them straight to the response.
+ */
+public interface SsrmRowWriter {
+
+    /**
+     * Writes one row.
+     * @param fields The field names (select aliases) of the row, in order.
+     * @param values The row values; may contain trailing extra columns (e.g. a window total) beyond fields.size(), which must be ignored.
+     * @throws IOException If writing fails.
+     */
+    void writeRow(List<String> fields, Object[] values) throws IOException;
+
+    /**
+     * Called once after the last row.
+     * @param lastRow The lastRow for the AG Grid response (-1 if unknown).
+     * @param pivotResultFields The pivot result fields in pivot mode, otherwise null.
+     * @throws IOException If writing fails.
+     */
+    void finish(int lastRow, List<String> pivotResultFields) throws IOException;
+}
@@ -0,0 +1,9 @@
+package com.example.aggridssremployee.service;
+
+/**
+ * Published after a write path (e.g. the bulk CSV update) commits changes to a table.
+ * Read-side caches listen for it and drop anything that may now be stale.
+ * @param tableName The table that was modified.
+ */
+public record TableDataChangedEvent(String tableName) {
+}
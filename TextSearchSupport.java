@@ -0,0 +1,142 @@
+package com.example.aggridssremployee.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides how the unanchored text filters (contains, notContains, endsWith) are rendered.
+ * <p>
+ * LOWER(col) LIKE '%x%' cannot use a B-tree index, so every keystroke in a filter box scans the table.
+ * With PostgreSQL's pg_trgm extension and a GIN index on the column (see db/migration), col ILIKE '%x%'
+ * is answered from the trigram index instead. The trigram indexes present on the table are detected once
+ * from pg_indexes; columns without one keep the LOWER(...) LIKE form.
+ */
+@Component
+public class TextSearchSupport {
+
+    private static final Logger logger = LoggerFactory.getLogger(TextSearchSupport.class);
+
+    public enum Mode {
+        // Use ILIKE for columns that have a trigram index, LOWER LIKE for the rest
+        AUTO,
+        // Always use ILIKE (e.g. indexes are managed outside this application)
+        TRIGRAM,
+        // Never use ILIKE (non-PostgreSQL databases)
+        LIKE
+    }
+
+    // "... USING gin (name gin_trgm_ops)" / "... USING gin (name gin_trgm_ops, job_title gin_trgm_ops)"
+    private static final Pattern TRIGRAM_COLUMN = Pattern.compile("[(,]\\s*\"?(\\w+)\"?\\s+gin_trgm_ops");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Mode mode;
+    private final String table;
+
+    // Columns with a trigram index, detected at startup (null until then)
+    private volatile Set<String> trigramColumns;
+
+    public TextSearchSupport(@Value("${employee.ssrm.text-search.mode:AUTO}") Mode mode,
+                             @Value("${employee.ssrm.text-search.table:employee}") String table) {
+        this.mode = mode;
+        this.table = table;
+    }
+
+    /**
+     * Builds a case-insensitive pattern match.
+     * @param cb CriteriaBuilder instance.
+     * @param path The String column.
+     * @param field The entity field name of the column.
+     * @param lowerPattern The LIKE pattern, already lower-cased (wildcards included).
+     * @param negate True for NOT LIKE.
+     * @return col ILIKE pattern if the column is trigram indexed, otherwise LOWER(col) LIKE pattern.
+     */
+    public Predicate match(CriteriaBuilder cb, Path<String> path, String field, Expression<String> lowerPattern, boolean negate) {
+        if (cb instanceof HibernateCriteriaBuilder hcb && useTrigramIndex(field)) {
+            return negate ? hcb.notIlike(path, lowerPattern) : hcb.ilike(path, lowerPattern);
+        }
+        return negate ? cb.notLike(cb.lower(path), lowerPattern) : cb.like(cb.lower(path), lowerPattern);
+    }
+
+    /**
+     * Same as {@link #match(CriteriaBuilder, Path, String, Expression, boolean)} with the pattern bound as a
+     * parameter, for queries built from literal predicates: the statement text does not change with the filter text.
+     * @param lowerPattern The LIKE pattern, already lower-cased (wildcards included).
+     */
+    public Predicate match(CriteriaBuilder cb, Path<String> path, String field, String lowerPattern, boolean negate) {
+        if (cb instanceof HibernateCriteriaBuilder hcb && useTrigramIndex(field)) {
+            return negate ? hcb.notIlike(path, lowerPattern) : hcb.ilike(path, lowerPattern);
+        }
+        return negate ? cb.notLike(cb.lower(path), lowerPattern) : cb.like(cb.lower(path), lowerPattern);
+    }
+
+    /**
+     * @param field The entity field name.
+     * @return True if pattern filters on this field should be rendered as ILIKE.
+     */
+    public boolean useTrigramIndex(String field) {
+        switch (mode) {
+            case TRIGRAM:
+                return true;
+            case LIKE:
+                return false;
+            case AUTO:
+            default:
+                Set<String> columns = trigramColumns;
+                return columns != null && columns.contains(toColumnName(field));
+        }
+    }
+
+    /**
+     * Reads the trigram indexes of the table once at startup. This runs outside any request transaction on
+     * purpose: a failing catalog query (e.g. not PostgreSQL) would otherwise mark that transaction rollback-only.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void detectTrigramIndexes() {
+        if (mode != Mode.AUTO) {
+            return;
+        }
+        Set<String> columns = new HashSet<>();
+        try {
+            @SuppressWarnings("unchecked")
+            List<String> indexDefinitions = entityManager
+                    .createNativeQuery("SELECT indexdef FROM pg_indexes WHERE tablename = :table")
+                    .setParameter("table", table)
+                    .getResultList();
+            for (String definition : indexDefinitions) {
+                Matcher matcher = TRIGRAM_COLUMN.matcher(definition);
+                while (matcher.find()) {
+                    columns.add(matcher.group(1));
+                }
+            }
+            logger.info("Trigram indexed columns on '{}': {}", table, columns);
+        } catch (Exception e) {
+            // Not PostgreSQL, or no access to the catalog: keep LOWER(...) LIKE everywhere
+            logger.warn("Could not detect trigram indexes on table '{}', text filters use LOWER(...) LIKE", table, e);
+        }
+        trigramColumns = columns;
+    }
+
+    // Spring's default physical naming strategy: jobTitle -> job_title
+    private static String toColumnName(String field) {
+        return field.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+    }
+}
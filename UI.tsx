@@ -14,6 +14,13 @@ export interface ServerSideGetRowsResponse {
     rows: any[];
     lastRow: number;
 }
+
+// Columnar encoding of the same response ("Accept: application/vnd.aggrid.columnar+json")
+export interface ColumnarGetRowsResponse {
+    columns: string[];
+    data: any[][];
+    lastRow: number;
+}
 /////
 import { ColDef } from 'ag-grid-community';
 
@@ -28,9 +35,32 @@ export const employeeColumnDefs: ColDef[] = [
 
 ////
 import axios from 'axios';
-import { ServerSideGetRowsRequest, ServerSideGetRowsResponse } from './types';
+import { ColumnarGetRowsResponse, ServerSideGetRowsRequest, ServerSideGetRowsResponse } from './types';
+
+const COLUMNAR_MEDIA_TYPE = 'application/vnd.aggrid.columnar+json';
+
+// Rebuilds the row objects AG Grid expects from the column arrays
+const toRows = ({ columns, data }: ColumnarGetRowsResponse): any[] => {
+    const rowCount = columns.length > 0 ? data[0].length : 0;
+    const rows = new Array(rowCount);
+    for (let r = 0; r < rowCount; r++) {
+        const row: any = {};
+        for (let c = 0; c < columns.length; c++) {
+            row[columns[c]] = data[c][r];
+        }
+        rows[r] = row;
+    }
+    return rows;
+};
+
+export interface DatasourceOptions {
+    // Request the columnar encoding (smaller payloads for wide blocks); rows are rebuilt client side
+    columnar?: boolean;
+}
 
-export const createServerSideDatasource = (url: string) => {
+export const createServerSideDatasource = (url: string, { columnar = false }: DatasourceOptions = {}) => {
+    // Lets the server cancel this grid's block prefetches when its filter or sort changes
+    const gridId = crypto.randomUUID();
     return {
         getRows: (params: any) => {
             console.log('AG Grid requesting data:', params.request);
@@ -47,9 +77,13 @@ export const createServerSideDatasource = (url: string) => {
                 pivotMode: params.request.pivotMode,
             };
 
-            axios.post<ServerSideGetRowsResponse>(url, requestBody)
+            const accept = columnar ? COLUMNAR_MEDIA_TYPE : 'application/json';
+            axios.post<ColumnarGetRowsResponse | ServerSideGetRowsResponse>(url, requestBody, { headers: { Accept: accept, 'X-Grid-Id': gridId } })
                 .then(response => {
-                    const { rows, lastRow } = response.data;
+                    const rows = columnar
+                        ? toRows(response.data as ColumnarGetRowsResponse)
+                        : (response.data as ServerSideGetRowsResponse).rows;
+                    const { lastRow } = response.data;
                     console.log(`Received ${rows.length} rows, lastRow: ${lastRow}`);
                     params.successCallback(rows, lastRow);
                 })
@@ -73,9 +107,11 @@ import { createServerSideDatasource } from './datasource';
 
 interface EmployeeGridProps {
     backendUrl?: string;
+    // Opt in to the columnar response encoding; the row format is the default
+    columnar?: boolean;
 }
 
-const EmployeeGrid: React.FC<EmployeeGridProps> = ({ backendUrl = 'http://localhost:8080/api/employees/ssrm-data' }) => {
+const EmployeeGrid: React.FC<EmployeeGridProps> = ({ backendUrl = 'http://localhost:8080/api/employees/ssrm-data', columnar = false }) => {
     const gridRef = useRef<AgGridReact>(null);
 
     const defaultColDef = useMemo<ColDef>(() => ({
@@ -86,11 +122,11 @@ const EmployeeGrid: React.FC<EmployeeGridProps> = ({ backendUrl = 'http://localh
 
     const gridOptions = useMemo(() => ({
         rowModelType: 'serverSide' as const,
-        serverSideDatasource: createServerSideDatasource(backendUrl),
+        serverSideDatasource: createServerSideDatasource(backendUrl, { columnar }),
         cacheBlockSize: 100,
         maxBlocksInCache: -1,
         rowGroupPanelShow: 'always' as const,
-    }), [backendUrl]);
+    }), [backendUrl, columnar]);
 
     const onRefreshClick = useCallback(() => {
         if (gridRef.current?.api) {
@@ -0,0 +1,204 @@
+package com.example.aggridssremployee.benchmark;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
+import com.example.aggridssremployee.service.EmployeeService;
+import com.example.aggridssremployee.service.SsrmRowWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * JMH benchmarks for the SSRM pipeline (filter planning, query building, sorting, formatting) driven
+ * end-to-end through EmployeeService against an in-memory H2 database (PostgreSQL mode) seeded with
+ * 1M employees.
+ *
+ * Requires jmh-core, jmh-generator-annprocess (annotation processor), spring-boot-starter-data-jpa and
+ * com.h2database:h2 on the benchmark classpath, plus the application classes (service, dto, model).
+ *
+ * Run main() to get throughput, latency percentiles (SampleTime) and allocation rate (gc profiler):
+ *   java -cp benchmarks.jar com.example.aggridssremployee.benchmark.EmployeeServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class EmployeeServiceBenchmark {
+
+    /** Minimal boot context: the application's service/model packages on H2, no web server. */
+    @SpringBootApplication(scanBasePackages = "com.example.aggridssremployee.service")
+    @EntityScan("com.example.aggridssremployee.model")
+    static class BenchmarkApplication {
+
+        // No Actuator here; SsrmMetrics still needs a registry
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    public enum Scenario {
+        // Sequential 100-row blocks from the top, as when the user scrolls an unfiltered grid
+        UNFILTERED_SCROLL,
+        // A single block far down the table (OFFSET 900000)
+        DEEP_OFFSET,
+        // Second group level (jobTitle under one department) of a two-level grouping, plus its leaf rows
+        MULTI_LEVEL_GROUPING,
+        // Set filter on department with 300 selected values
+        LARGE_SET_FILTER,
+        // Text "contains" filter on name
+        TEXT_CONTAINS
+    }
+
+    @Param("1000000")
+    public int employeeCount;
+
+    @Param
+    public Scenario scenario;
+
+    private ConfigurableApplicationContext context;
+    private EmployeeService employeeService;
+    private List<ServerSideGetRowsRequest> requests;
+    private int nextRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:ssrm-bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.open-in-view=false",
+                        "logging.level.com.example.aggridssremployee=WARN",
+                        // Measure the query path, not memory lookups of identical blocks
+                        "employee.ssrm.block-cache.enabled=false")
+                .run();
+        employeeService = context.getBean(EmployeeService.class);
+        seed(context.getBean(JdbcTemplate.class), employeeCount);
+        requests = buildRequests(new ObjectMapper(), scenario);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ServerSideGetRowsResponse getData() {
+        return employeeService.getData(nextRequest());
+    }
+
+    @Benchmark
+    public void streamData(Blackhole blackhole) throws Exception {
+        employeeService.streamData(nextRequest(), new SsrmRowWriter() {
+            @Override
+            public void writeRow(List<String> fields, Object[] values) {
+                blackhole.consume(values);
+            }
+
+            @Override
+            public void finish(int lastRow, List<String> pivotResultFields) {
+                blackhole.consume(lastRow);
+            }
+        });
+    }
+
+    private ServerSideGetRowsRequest nextRequest() {
+        ServerSideGetRowsRequest request = requests.get(nextRequest);
+        nextRequest = (nextRequest + 1) % requests.size();
+        return request;
+    }
+
+    /**
+     * Seeds the employee table in one set-based INSERT: 500 departments, 40 job titles, salaries and
+     * hire dates spread deterministically so every run sees the same data distribution.
+     */
+    private static void seed(JdbcTemplate jdbc, int count) {
+        jdbc.update("INSERT INTO employee (id, name, department, job_title, salary, hire_date) "
+                + "SELECT x, 'Employee ' || x, 'Dept ' || MOD(x, 500), 'Title ' || MOD(x, 40), "
+                + "30000 + MOD(x * 7919, 170000), DATEADD('DAY', -MOD(x * 31, 10000), DATE '2024-12-31') "
+                + "FROM SYSTEM_RANGE(1, ?)", count);
+        jdbc.execute("ANALYZE");
+    }
+
+    /**
+     * Builds the requests of a scenario from JSON, the way the controller receives them from the grid.
+     */
+    private static List<ServerSideGetRowsRequest> buildRequests(ObjectMapper mapper, Scenario scenario) throws Exception {
+        List<String> bodies;
+        switch (scenario) {
+            case UNFILTERED_SCROLL:
+                bodies = IntStream.range(0, 50)
+                        .mapToObj(block -> leafRequest(block * 100, "{}"))
+                        .collect(Collectors.toList());
+                break;
+            case DEEP_OFFSET:
+                bodies = List.of(leafRequest(900_000, "{}"));
+                break;
+            case MULTI_LEVEL_GROUPING:
+                String rowGroupCols = "[{\"id\":\"department\",\"field\":\"department\"},{\"id\":\"jobTitle\",\"field\":\"jobTitle\"}]";
+                String valueCols = "[{\"id\":\"salary\",\"field\":\"salary\",\"aggFunc\":\"sum\"}]";
+                bodies = List.of(
+                        "{\"startRow\":0,\"endRow\":100,\"rowGroupCols\":" + rowGroupCols + ",\"valueCols\":" + valueCols
+                                + ",\"groupKeys\":[],\"filterModel\":{},\"sortModel\":[]}",
+                        "{\"startRow\":0,\"endRow\":100,\"rowGroupCols\":" + rowGroupCols + ",\"valueCols\":" + valueCols
+                                + ",\"groupKeys\":[\"Dept 42\"],\"filterModel\":{},\"sortModel\":[]}",
+                        "{\"startRow\":0,\"endRow\":100,\"rowGroupCols\":" + rowGroupCols + ",\"valueCols\":" + valueCols
+                                + ",\"groupKeys\":[\"Dept 42\",\"Title 2\"],\"filterModel\":{},\"sortModel\":[]}");
+                break;
+            case LARGE_SET_FILTER:
+                String values = IntStream.range(0, 300)
+                        .mapToObj(i -> "\"Dept " + i + "\"")
+                        .collect(Collectors.joining(","));
+                bodies = List.of(leafRequest(0, "{\"department\":{\"filterType\":\"set\",\"values\":[" + values + "]}}"));
+                break;
+            case TEXT_CONTAINS:
+                bodies = List.of(leafRequest(0, "{\"name\":{\"filterType\":\"text\",\"type\":\"contains\",\"filter\":\"9999\"}}"));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown scenario " + scenario);
+        }
+
+        List<ServerSideGetRowsRequest> requests = new ArrayList<>();
+        for (String body : bodies) {
+            requests.add(mapper.readValue(body, ServerSideGetRowsRequest.class));
+        }
+        return requests;
+    }
+
+    private static String leafRequest(int startRow, String filterModel) {
+        return "{\"startRow\":" + startRow + ",\"endRow\":" + (startRow + 100)
+                + ",\"rowGroupCols\":[],\"groupKeys\":[],\"filterModel\":" + filterModel
+                + ",\"sortModel\":[{\"colId\":\"salary\",\"sort\":\"desc\"}]}";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EmployeeServiceBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,111 @@
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picks the csv_id range size of the next bulk apply chunk so that each chunk (audit INSERT + UPDATE) takes
+ * about bulk.apply.chunk.target-latency.
+ * <p>
+ * Small chunks waste time on round trips and commits. Large chunks hold row locks for seconds and leave many
+ * dead tuples per transaction. The right size depends on the table (row width, indexes, triggers), so the
+ * cost per csv_id is measured for every chunk and smoothed (EWMA) per table and partition count, and the next
+ * size is the target latency divided by that cost. Growth is limited to doubling per chunk. A chunk that hit
+ * the lock timeout halves the size immediately. The state is kept across jobs, so later uploads to the same
+ * table start from the learned size instead of the initial one.
+ */
+@Component
+public class AdaptiveChunkSizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveChunkSizer.class);
+
+    // Weight of the latest chunk in the smoothed cost
+    private static final double ALPHA = 0.3;
+    private static final double MAX_GROWTH = 2.0;
+
+    private static final class State {
+        private int chunkSize;
+        // Smoothed nanoseconds per csv_id of the range, NaN until the first measurement
+        private double nanosPerId = Double.NaN;
+
+        private State(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    private final long targetNanos;
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final int initialChunkSize;
+
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    public AdaptiveChunkSizer(@Value("${bulk.apply.chunk.target-latency:500ms}") Duration targetLatency,
+                              @Value("${bulk.apply.chunk.min-size:200}") int minChunkSize,
+                              @Value("${bulk.apply.chunk.max-size:50000}") int maxChunkSize,
+                              @Value("${bulk.apply.chunk.initial-size:2000}") int initialChunkSize) {
+        this.targetNanos = targetLatency.toNanos();
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.initialChunkSize = clamp(initialChunkSize);
+    }
+
+    /**
+     * @param key The table plus the apply's partition count (concurrent workers change the cost per row).
+     * @return The csv_id range size for the next chunk.
+     */
+    public int nextChunkSize(String key) {
+        State state = state(key);
+        synchronized (state) {
+            return state.chunkSize;
+        }
+    }
+
+    /**
+     * Records a committed chunk and adjusts the size toward the target latency.
+     * @param key See {@link #nextChunkSize}.
+     * @param rangeSize The range size of the chunk (csv_id, or apply_seq within a partition).
+     * @param rowsUpdated Rows the chunk's UPDATE affected (logged only; the range is what the next size controls).
+     * @param elapsedNanos Time for audit, UPDATE and commit.
+     */
+    public void recordChunk(String key, int rangeSize, int rowsUpdated, long elapsedNanos) {
+        State state = state(key);
+        synchronized (state) {
+            double cost = (double) elapsedNanos / Math.max(1, rangeSize);
+            state.nanosPerId = Double.isNaN(state.nanosPerId) ? cost : ALPHA * cost + (1 - ALPHA) * state.nanosPerId;
+            int wanted = (int) Math.min(Integer.MAX_VALUE, targetNanos / state.nanosPerId);
+            int next = clamp(Math.min(wanted, (int) (state.chunkSize * MAX_GROWTH)));
+            if (next != state.chunkSize) {
+                logger.debug("{}: chunk of {} ids ({} rows) took {} ms, chunk size {} -> {}",
+                        key, rangeSize, rowsUpdated, elapsedNanos / 1_000_000, state.chunkSize, next);
+            }
+            state.chunkSize = next;
+        }
+    }
+
+    /**
+     * Records a chunk that was rolled back after waiting longer than the lock timeout: halves the size,
+     * so the retry holds fewer locks and is less likely to collide with the other writer again.
+     * @param key See {@link #nextChunkSize}.
+     */
+    public void recordLockTimeout(String key) {
+        State state = state(key);
+        synchronized (state) {
+            int next = clamp(state.chunkSize / 2);
+            logger.info("{}: chunk hit the lock timeout, chunk size {} -> {}", key, state.chunkSize, next);
+            state.chunkSize = next;
+        }
+    }
+
+    private State state(String key) {
+        return states.computeIfAbsent(key, k -> new State(initialChunkSize));
+    }
+
+    private int clamp(int size) {
+        return Math.max(minChunkSize, Math.min(maxChunkSize, size));
+    }
+}
@@ -0,0 +1,154 @@
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Normalized name -> id dictionaries of the reference_<col> tables, shared by all bulk upload jobs.
+ * <p>
+ * Validating with LOWER(TRIM(v.col)) = LOWER(TRIM(r.name)) cannot use an index on name, so every job used
+ * to scan every reference table. A dictionary is loaded once per column instead and served from memory.
+ * After bulk.reference-cache.ttl the table's modification counters in pg_stat_user_tables are compared
+ * with those seen at load time: unchanged tables keep their dictionary, changed ones are reloaded.
+ * Reference tables are small (thousands of names), so a whole dictionary per column fits in memory.
+ * <p>
+ * Staleness: a dictionary is served unchecked for up to the TTL after its last check. The pg_stat counters
+ * are also updated asynchronously (a backend reports its changes when its transaction ends, at most every
+ * few hundred ms), so a change committed just before a check can go unnoticed until the next check, one
+ * TTL later. A dictionary can therefore lag the table by up to about two TTLs; writers that need their
+ * change to be seen at once call {@link #invalidate}.
+ */
+@Component
+public class ReferenceDictionaryCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDictionaryCache.class);
+
+    /**
+     * The ids of one reference table, keyed by normalized name.
+     */
+    public static final class Dictionary {
+        private final Map<String, Long> idsByName;
+        private final String version;
+        private volatile long checkedAtNanos;
+
+        private Dictionary(Map<String, Long> idsByName, String version, long checkedAtNanos) {
+            this.idsByName = Collections.unmodifiableMap(idsByName);
+            this.version = version;
+            this.checkedAtNanos = checkedAtNanos;
+        }
+
+        /**
+         * @param value A raw CSV value.
+         * @return The id of the reference row with the same normalized name, or null if there is none.
+         */
+        public Long resolve(String value) {
+            return value == null ? null : idsByName.get(normalize(value));
+        }
+
+        public int size() {
+            return idsByName.size();
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlNanos;
+
+    private final Map<String, Dictionary> dictionaries = new ConcurrentHashMap<>();
+
+    // One lock per column, held while the column is checked or loaded; the map itself is never locked during I/O
+    private final Map<String, Object> columnLocks = new ConcurrentHashMap<>();
+
+    public ReferenceDictionaryCache(JdbcTemplate jdbcTemplate,
+                                    @Value("${bulk.reference-cache.ttl:5m}") Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * @param column The validated column; its reference table is reference_<column>.
+     * @return The column's dictionary, loaded or revalidated if needed.
+     */
+    public Dictionary get(String column) {
+        Dictionary current = dictionaries.get(column);
+        if (isFresh(current)) {
+            return current;
+        }
+        // Concurrent jobs wait for one check or load of the column instead of each running it
+        synchronized (columnLocks.computeIfAbsent(column, col -> new Object())) {
+            current = dictionaries.get(column);
+            if (isFresh(current)) {
+                return current;
+            }
+            long now = System.nanoTime();
+            String version = tableVersion(column);
+            if (current != null && current.version.equals(version)) {
+                current.checkedAtNanos = now;
+                return current;
+            }
+            Dictionary loaded = load(column, version, now);
+            dictionaries.put(column, loaded);
+            return loaded;
+        }
+    }
+
+    /**
+     * Drops a column's dictionary, e.g. after the application itself modified the reference table.
+     */
+    public void invalidate(String column) {
+        dictionaries.remove(column);
+    }
+
+    private boolean isFresh(Dictionary dictionary) {
+        return dictionary != null && System.nanoTime() - dictionary.checkedAtNanos < ttlNanos;
+    }
+
+    private Dictionary load(String column, String version, long now) {
+        long started = System.nanoTime();
+        Map<String, Long> idsByName = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM reference_" + column + " ORDER BY id", rs -> {
+            String name = normalize(rs.getString("name"));
+            // Names that only differ in case or padding are ambiguous; the lowest id wins, as before with the join
+            if (idsByName.putIfAbsent(name, rs.getLong("id")) != null) {
+                logger.warn("reference_{} has duplicate normalized name '{}'", column, name);
+            }
+        });
+        logger.info("Loaded {} reference names for column {} in {} ms", idsByName.size(), column, (System.nanoTime() - started) / 1_000_000);
+        return new Dictionary(idsByName, version, now);
+    }
+
+    /**
+     * Insert/update/delete counters of the reference table. They only grow while the table is modified,
+     * so a different value means the dictionary may be stale (a statistics reset also just causes a reload).
+     */
+    private String tableVersion(String column) {
+        List<String> versions = jdbcTemplate.queryForList(
+                "SELECT n_tup_ins || ':' || n_tup_upd || ':' || n_tup_del FROM pg_stat_user_tables WHERE relname = ?",
+                String.class, "reference_" + column);
+        // No statistics row (e.g. a view): always reload after the TTL
+        return versions.isEmpty() ? "unknown:" + System.nanoTime() : versions.get(0);
+    }
+
+    /**
+     * Same normalization as LOWER(TRIM(...)) in PostgreSQL: TRIM only strips spaces.
+     */
+    static String normalize(String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return value.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+}
@@ -22,6 +22,31 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    // Upload parsers: one task per running upload, parsing and validating while COPY reads its output
+    @Bean(name = "bulkValidationExecutor")
+    public ThreadPoolTaskExecutor bulkValidationExecutor(@Value("${bulk.validation.max-parallel:4}") int maxParallel) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxParallel);
+        executor.setMaxPoolSize(maxParallel);
+        // Parsers beyond maxParallel wait here; their uploads' COPY waits for them
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("bulk-validate-");
+        executor.initialize();
+        return executor;
+    }
+
+    // chunkedUpdate workers (bulk.apply.parallelism per running job), each holding a connection while it runs
+    @Bean(name = "bulkApplyExecutor")
+    public ThreadPoolTaskExecutor bulkApplyExecutor(@Value("${bulk.apply.max-workers:8}") int maxWorkers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxWorkers);
+        executor.setMaxPoolSize(maxWorkers);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("bulk-apply-");
+        executor.initialize();
+        return executor;
+    }
 }
 
 // 2. Entities & Repositories
@@ -30,7 +55,7 @@ public class AsyncConfig {
 public class JobStatus {
     @Id
     private UUID jobId;
-    private String status;  // PENDING, PROCESSING, COMPLETED, FAILED
+    private String status;  // PENDING, PROCESSING, COMPLETED, FAILED, APPLY_FAILED (staging kept, can be resumed)
     private int errorCount;
     private Instant submittedAt;
     private Instant completedAt;
@@ -86,6 +111,20 @@ public class BulkUpdateController {
                 .body(Collections.singletonMap("jobId", jobId));
     }
 
+    // Continues the apply of a job that failed in it (e.g. lock timeouts), after its committed chunks
+    @PostMapping("/{jobId}/resume")
+    public ResponseEntity<Void> resume(@PathVariable UUID jobId, @AuthenticationPrincipal User user) {
+        JobStatus job = jobStatusRepo.findById(jobId).orElse(null);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!"APPLY_FAILED".equals(job.getStatus())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        bulkSvc.resumeApplyAsync(jobId, user.getUsername());
+        return ResponseEntity.accepted().build();
+    }
+
     @GetMapping("/{jobId}/errors")
     public List<JobError> fetchErrors(@PathVariable UUID jobId) {
         return jobErrorRepo.findByJobId(jobId);
@@ -95,113 +134,438 @@ public class BulkUpdateController {
 // 4. Service
 @Service
 public class BulkUpdateService {
+    // The table the uploads update
+    private static final String TARGET_TABLE = "main_table";
     private static final List<String> ALLOWED_COLUMNS = List.of(
         "col1", "col2", /* ... all 40 columns ... */
     );
+    // Columns checked against their reference_<col> table
+    private static final List<String> VALIDATED_COLUMNS = List.of(
+        "col1", /* ... 15 complex columns ... */
+    );
     private final DataSource dataSource;
     private final NamedParameterJdbcTemplate jdbc;
     private final JobStatusRepository jobStatusRepo;
     private final JobErrorRepository jobErrorRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final GroupSummaryStore groupSummaryStore;
+    private final Executor validationExecutor;
+    private final ReferenceDictionaryCache referenceCache;
+    private final Executor applyExecutor;
+    private final AdaptiveChunkSizer chunkSizer;
+
+    // Error threshold: the streaming pipeline stops reading the file once more errors than this were found
+    @Value("${bulk.validation.max-errors:1000}")
+    private int maxValidationErrors;
+
+    // Number of apply workers (connections) for chunkedUpdate; 1 applies the chunks serially on the job's connection
+    @Value("${bulk.apply.parallelism:1}")
+    private int applyParallelism;
+
+    // Lock wait limit per apply chunk (SET LOCAL lock_timeout); a chunk that exceeds it is rolled back and retried smaller
+    @Value("${bulk.apply.lock-timeout:2s}")
+    private Duration lockTimeout;
+
+    private static final int MAX_LOCK_TIMEOUT_RETRIES = 5;
+    private static final int ERROR_BATCH_SIZE = 500;
+    private static final int PIPE_BUFFER_BYTES = 1 << 20;
 
     public BulkUpdateService(DataSource dataSource,
                              NamedParameterJdbcTemplate jdbc,
                              JobStatusRepository jobStatusRepo,
-                             JobErrorRepository jobErrorRepo) {
+                             JobErrorRepository jobErrorRepo,
+                             ApplicationEventPublisher eventPublisher,
+                             GroupSummaryStore groupSummaryStore,
+                             @Qualifier("bulkValidationExecutor") Executor validationExecutor,
+                             ReferenceDictionaryCache referenceCache,
+                             @Qualifier("bulkApplyExecutor") Executor applyExecutor,
+                             AdaptiveChunkSizer chunkSizer) {
         this.dataSource = dataSource;
         this.jdbc = jdbc;
         this.jobStatusRepo = jobStatusRepo;
         this.jobErrorRepo = jobErrorRepo;
+        this.eventPublisher = eventPublisher;
+        this.groupSummaryStore = groupSummaryStore;
+        this.validationExecutor = validationExecutor;
+        this.referenceCache = referenceCache;
+        this.applyExecutor = applyExecutor;
+        this.chunkSizer = chunkSizer;
+        // Every chunk maintains the group summary, fail at startup rather than on the first upload
+        if (groupSummaryStore.isEnabled() && !TARGET_TABLE.equals(groupSummaryStore.getTable())) {
+            throw new IllegalStateException("Bulk uploads update '" + TARGET_TABLE + "' but the group summary is built from '"
+                + groupSummaryStore.getTable() + "': set employee.ssrm.group-summary.table or disable the group summary");
+        }
     }
 
     @Async("bulkTaskExecutor")
     public void processCsvAsync(UUID jobId, MultipartFile file, String username) {
         updateStatus(jobId, "PROCESSING");
+        String stagingTable = stagingTableName(jobId);
+        // Set once the apply has started: from then on a failure keeps the staging table for resumeApplyAsync
+        boolean applying = false;
         try (Connection conn = dataSource.getConnection()) {
-            // 6. Schema Drift Guard
-            validateSchema(conn, file);
-            // 2. Create & Load Temp Table
-            createTempTable(conn);
-            runCopy(conn, file);
-            // 3. Batch Validation
-            performValidations(conn, jobId);
+            // Explicit transactions: the serial apply runs its chunks on this connection and relies on
+            // SET LOCAL, rollback and commit per chunk, which autocommit would turn into no-ops or errors
+            conn.setAutoCommit(false);
+            createStagingTable(conn, stagingTable);
+            // The apply workers use their own connections and must see the table
+            conn.commit();
+            // 2.-4. Parse, validate and load in one pass, aborting at the error threshold
+            int errors = streamValidateAndCopy(conn, file, stagingTable, jobId);
+            conn.commit();
             // 4. Error Handling & Thresholds
-            int errors = jobErrorRepo.countByJobId(jobId);
             if (errors > 0) {
                 updateStatus(jobId, "FAILED", errors);
                 return;
             }
             // 5. Chunked Bulk Update
-            chunkedUpdate(conn, username);
+            applying = true;
+            chunkedUpdate(conn, jobId, username, stagingTable);
+            applying = false;
+            updateStatus(jobId, "COMPLETED");
+        } catch (Exception ex) {
+            updateStatus(jobId, applying ? "APPLY_FAILED" : "FAILED");
+            // log exception
+        } finally {
+            if (!applying) {
+                dropStagingTable(stagingTable);
+            }
+        }
+    }
+
+    /**
+     * Continues the apply of a job in APPLY_FAILED: its staging table was kept and the chunks recorded in
+     * job_chunks are skipped, so the rows already committed are not applied (and audited) twice.
+     */
+    @Async("bulkTaskExecutor")
+    public void resumeApplyAsync(UUID jobId, String username) {
+        updateStatus(jobId, "PROCESSING");
+        String stagingTable = stagingTableName(jobId);
+        boolean completed = false;
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            chunkedUpdate(conn, jobId, username, stagingTable);
+            completed = true;
             updateStatus(jobId, "COMPLETED");
         } catch (Exception ex) {
-            updateStatus(jobId, "FAILED");
+            updateStatus(jobId, "APPLY_FAILED");
             // log exception
+        } finally {
+            if (completed) {
+                dropStagingTable(stagingTable);
+            }
         }
     }
 
-    private void validateSchema(Connection conn, MultipartFile file) {
-        // read CSV header, compare to ALLOWED_COLUMNS via information_schema
-        // throw exception on mismatch
+    // A regular (UNLOGGED) table per job instead of a TEMP table: temp tables are only visible to the
+    // session that created them, the validation workers read the staged rows on their own connections
+    private static String stagingTableName(UUID jobId) {
+        return "upload_staging_" + jobId.toString().replace("-", "");
     }
 
-    private void createTempTable(Connection conn) throws SQLException {
-        String ddl = "CREATE UNLOGGED TEMP TABLE temp_upload ( " +
+    private void createStagingTable(Connection conn, String stagingTable) throws SQLException {
+        String ddl = "CREATE UNLOGGED TABLE " + stagingTable + " ( " +
             "csv_id SERIAL PRIMARY KEY, pk_col BIGINT, " +
             ALLOWED_COLUMNS.stream().map(c -> c + " TEXT").collect(Collectors.joining(", ")) +
-            ", line_number INT" +
+            ", line_number INT, " +
+            // Ids of the reference values, resolved while parsing
+            VALIDATED_COLUMNS.stream().map(c -> c + "_id BIGINT").collect(Collectors.joining(", ")) +
             ");";
         conn.createStatement().execute(ddl);
     }
 
-    private void runCopy(Connection conn, MultipartFile file) throws SQLException, IOException {
-        CopyManager copyMgr = new CopyManager((BaseConnection) conn);
-        String cols = Stream.concat(Stream.of("pk_col"), ALLOWED_COLUMNS.stream())
+    private void dropStagingTable(String stagingTable) {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(true);
+            conn.createStatement().execute("DROP TABLE IF EXISTS " + stagingTable);
+        } catch (SQLException ex) {
+            // log and leave it for a cleanup job: the table name carries the job id
+        }
+    }
+
+    /**
+     * Parses the upload and loads it in one pass: the header is checked against the expected columns first,
+     * then every record is validated (pk_col, reference values from the dictionary cache) as it is parsed and
+     * only good rows are forwarded to COPY through a pipe, together with the resolved reference ids (the
+     * &lt;col&gt;_id staging columns), so the staged rows need no second validation pass. Parsing runs on a validation worker while COPY
+     * reads the pipe on this connection. Once more than bulk.validation.max-errors errors are found parsing
+     * stops, so a file that is wrong near the top fails after reading just that part.
+     * @return The number of errors recorded in job_errors (more than max-errors if the pipeline aborted early).
+     */
+    private int streamValidateAndCopy(Connection conn, MultipartFile file, String stagingTable, UUID jobId)
+            throws SQLException, IOException {
+        PipedInputStream copyInput = new PipedInputStream(PIPE_BUFFER_BYTES);
+        PipedOutputStream validRows = new PipedOutputStream(copyInput);
+        CompletableFuture<Integer> parser = CompletableFuture.supplyAsync(() -> {
+            try (OutputStream out = validRows) {
+                return parseAndValidate(file, out, jobId);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, validationExecutor);
+
+        String cols = Stream.of(Stream.of("pk_col"), ALLOWED_COLUMNS.stream(), Stream.of("line_number"),
+                VALIDATED_COLUMNS.stream().map(c -> c + "_id"))
+            .flatMap(columns -> columns)
             .collect(Collectors.joining(", "));
-        copyMgr.copyIn(
-            "COPY temp_upload(pk_col, " + cols + ", line_number) FROM STDIN WITH (FORMAT csv, HEADER)",
-            file.getInputStream()
-        );
+        try {
+            new CopyManager((BaseConnection) conn).copyIn(
+                "COPY " + stagingTable + "(" + cols + ") FROM STDIN WITH (FORMAT csv)", copyInput);
+        } finally {
+            // If COPY failed, this unblocks the parser (its next write fails with "Pipe closed")
+            copyInput.close();
+        }
+        try {
+            return parser.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException ioEx) {
+                throw ioEx.getCause();
+            }
+            throw ex;
+        }
     }
 
-    private void performValidations(Connection conn, UUID jobId) throws SQLException {
-        for (String col : List.of("col1", /* ... 15 complex columns ... */)) {
-            // a) Extract distinct
-            String tmpVals = "CREATE TEMP TABLE vals_" + col + " AS SELECT DISTINCT " + col + " FROM temp_upload;";
-            conn.createStatement().execute(tmpVals);
-
-            // b) Validate
-            String validationSql = "INSERT INTO job_errors(job_id, line_number, column_name, invalid_value, error_msg) " +
-                "SELECT '" + jobId + "'::uuid, t.line_number, '" + col + "', t." + col + ", 'Not found' " +
-                "FROM vals_" + col + " v " +
-                "LEFT JOIN reference_" + col + " r ON LOWER(TRIM(v." + col + ")) = LOWER(TRIM(r.name)) " +
-                "JOIN temp_upload t USING(" + col + ") WHERE r.id IS NULL;";
-            conn.createStatement().execute(validationSql);
-        }
-    }
-
-    private void chunkedUpdate(Connection conn, String username) throws SQLException {
-        int chunkSize = 2000;
-        Integer maxId = jdbc.queryForObject("SELECT max(csv_id) FROM temp_upload", Collections.emptyMap(), Integer.class);
-        for (int start = 1; start <= maxId; start += chunkSize) {
-            int end = start + chunkSize - 1;
-            // 7. Audit Trail inside chunk
-            String auditSql = "INSERT INTO main_table_history(pk_col, changed_at, changed_by, old_values, new_values) " +
-                "SELECT m.pk_col, NOW(), '" + username + "', row_to_json(m), row_to_json(t) " +
-                "FROM main_table m JOIN temp_upload t " +
-                "ON m.pk_col = t.pk_col AND t.csv_id BETWEEN " + start + " AND " + end + ";";
-            conn.createStatement().execute(auditSql);
-
-            // Update chunk
-            String colsSql = ALLOWED_COLUMNS.stream()
-                .map(c -> c + " = t." + c)
-                .collect(Collectors.joining(", ")); 
-            String updateSql = String.format(
-                "UPDATE main_table m SET %s FROM temp_upload t WHERE m.pk_col = t.pk_col AND t.csv_id BETWEEN %d AND %d;",
-                colsSql, start, end
-            );
-            conn.createStatement().execute(updateSql);
-            conn.commit();
+    private int parseAndValidate(MultipartFile file, OutputStream validRows, UUID jobId) throws IOException {
+        List<String> expectedHeader = Stream.concat(Stream.of("pk_col"), ALLOWED_COLUMNS.stream()).collect(Collectors.toList());
+        Map<String, ReferenceDictionaryCache.Dictionary> dictionaries = new HashMap<>();
+        for (String col : VALIDATED_COLUMNS) {
+            dictionaries.put(col, referenceCache.get(col));
+        }
+
+        List<JobError> pendingErrors = new ArrayList<>();
+        int errorCount = 0;
+        CSVFormat format = CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build();
+        try (CSVParser records = format.parse(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
+             CSVPrinter copyRows = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(validRows, StandardCharsets.UTF_8)), CSVFormat.DEFAULT)) {
+            // 6. Schema Drift Guard, before the first row is read
+            if (!records.getHeaderNames().equals(expectedHeader)) {
+                throw new IllegalArgumentException("Schema drift: expected columns " + expectedHeader + " but got " + records.getHeaderNames());
+            }
+
+            for (CSVRecord record : records) {
+                int lineNumber = (int) record.getRecordNumber() + 1; // + header line
+                List<JobError> rowErrors = new ArrayList<>();
+                List<Long> referenceIds = new ArrayList<>();
+                if (!record.isConsistent()) {
+                    rowErrors.add(jobError(jobId, lineNumber, null, null, "Expected " + expectedHeader.size() + " columns but got " + record.size()));
+                } else {
+                    try {
+                        Long.parseLong(record.get("pk_col").trim());
+                    } catch (NumberFormatException ex) {
+                        rowErrors.add(jobError(jobId, lineNumber, "pk_col", record.get("pk_col"), "Not a number"));
+                    }
+                    for (String col : VALIDATED_COLUMNS) {
+                        String value = record.get(col);
+                        Long id = value.isEmpty() ? null : dictionaries.get(col).resolve(value);
+                        if (!value.isEmpty() && id == null) {
+                            rowErrors.add(jobError(jobId, lineNumber, col, value, "Not found"));
+                        }
+                        referenceIds.add(id);
+                    }
+                }
+
+                if (rowErrors.isEmpty()) {
+                    List<Object> row = new ArrayList<>(record.toList());
+                    row.add(lineNumber);
+                    // Empty (NULL in COPY) for empty values
+                    row.addAll(referenceIds);
+                    copyRows.printRecord(row);
+                    continue;
+                }
+                errorCount += rowErrors.size();
+                pendingErrors.addAll(rowErrors);
+                if (pendingErrors.size() >= ERROR_BATCH_SIZE) {
+                    jobErrorRepo.saveAll(pendingErrors);
+                    pendingErrors.clear();
+                }
+                // 4. Error Threshold: the job fails anyway, stop reading the rest of the file
+                if (errorCount > maxValidationErrors) {
+                    break;
+                }
+            }
+        } finally {
+            jobErrorRepo.saveAll(pendingErrors);
         }
+        return errorCount;
+    }
+
+    private static JobError jobError(UUID jobId, int lineNumber, String column, String value, String message) {
+        JobError error = new JobError();
+        error.setJobId(jobId);
+        error.setLineNumber(lineNumber);
+        error.setColumnName(column);
+        error.setInvalidValue(value);
+        error.setErrorMsg(message);
+        return error;
+    }
+
+    private static final class UncheckedSQLException extends RuntimeException {
+        private UncheckedSQLException(String message, SQLException cause) {
+            super(message, cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+    /**
+     * Applies the staged rows to main_table in chunks, sized by the AdaptiveChunkSizer. With bulk.apply.parallelism = N > 1, N workers
+     * run at once, each on its own connection: worker w applies the rows whose pk_col falls in partition w (pk_col modulo N,
+     * non-negative), so no two workers ever update (and lock) the same main_table row, and repeated pk_cols in the file stay
+     * in csv_id order within one worker. Each partition's rows are numbered densely first (apply_seq), so a worker's chunks
+     * only cover its own rows and the workers together need no more round trips than the serial apply. Every chunk commits on
+     * its own and is recorded in job_chunks in the same transaction; a resumed job skips the recorded chunks and keeps the
+     * partition count of its first run, so the recorded ranges still describe the same rows.
+     */
+    private void chunkedUpdate(Connection conn, UUID jobId, String username, String stagingTable) throws SQLException {
+        Integer recordedPartitions = jdbc.queryForObject("SELECT max(partitions) FROM job_chunks WHERE job_id = :jobId",
+            Map.of("jobId", jobId), Integer.class);
+        // Concurrent group summary upserts from several workers could deadlock on shared group rows
+        int partitions = recordedPartitions != null ? recordedPartitions
+            : groupSummaryStore.isEnabled() ? 1 : Math.max(1, applyParallelism);
+        if (partitions == 1) {
+            Integer maxId = jdbc.queryForObject("SELECT max(csv_id) FROM " + stagingTable, Collections.emptyMap(), Integer.class);
+            if (maxId != null) {
+                applyPartition(conn, jobId, username, stagingTable, "csv_id", 0, 1, maxId);
+            }
+            return;
+        }
+
+        // Java's % (and PostgreSQL's mod) keep the sign of pk_col, so fold negative keys into 0..N-1.
+        // Repeatable on resume: the numbering only depends on csv_id and the partition count
+        String partitionExpr = "((pk_col % " + partitions + ") + " + partitions + ") % " + partitions;
+        jdbc.update("ALTER TABLE " + stagingTable + " ADD COLUMN IF NOT EXISTS apply_part INT, ADD COLUMN IF NOT EXISTS apply_seq INT",
+            Collections.emptyMap());
+        jdbc.update("UPDATE " + stagingTable + " t SET apply_part = n.part, apply_seq = n.seq FROM (" +
+            "SELECT csv_id, " + partitionExpr + " AS part, row_number() OVER (PARTITION BY " + partitionExpr + " ORDER BY csv_id) AS seq " +
+            "FROM " + stagingTable + ") n WHERE t.csv_id = n.csv_id", Collections.emptyMap());
+        jdbc.update("CREATE INDEX IF NOT EXISTS " + stagingTable + "_apply ON " + stagingTable + " (apply_part, apply_seq)",
+            Collections.emptyMap());
+        Map<Integer, Integer> rowsPerPartition = new HashMap<>();
+        jdbc.query("SELECT apply_part, max(apply_seq) AS max_seq FROM " + stagingTable + " WHERE apply_part IS NOT NULL GROUP BY apply_part",
+            Collections.emptyMap(), rs -> { rowsPerPartition.put(rs.getInt("apply_part"), rs.getInt("max_seq")); });
+
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> partition : rowsPerPartition.entrySet()) {
+            int p = partition.getKey();
+            int maxSeq = partition.getValue();
+            workers.add(CompletableFuture.runAsync(() -> {
+                try (Connection workerConn = dataSource.getConnection()) {
+                    workerConn.setAutoCommit(false);
+                    applyPartition(workerConn, jobId, username, stagingTable, "apply_seq", p, partitions, maxSeq);
+                } catch (SQLException ex) {
+                    throw new UncheckedSQLException("Apply of partition " + p + " failed", ex);
+                }
+            }, applyExecutor));
+        }
+        try {
+            // A failed worker does not stop the others: their chunks are committed and recorded either way
+            CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedSQLException sqlEx) {
+                throw sqlEx.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Applies the staged rows with rangeColumn 1..maxId of one partition chunk by chunk, after the chunks already
+     * recorded in job_chunks for it (a partition's chunks commit in range order, so they form a prefix).
+     * @param rangeColumn csv_id for the serial apply, apply_seq (dense within the partition) for a worker.
+     * @param partition The partition applied by this worker, 0 for the serial apply.
+     * @param partitions The partition count, 1 for the serial apply.
+     */
+    private void applyPartition(Connection conn, UUID jobId, String username, String stagingTable, String rangeColumn,
+                                int partition, int partitions, int maxId) throws SQLException {
+        // Rows of this worker's partition; empty for the serial apply
+        String partitionFilter = partitions == 1 ? "" : " AND t.apply_part = " + partition;
+        String sizerKey = TARGET_TABLE + "/" + partitions;
+        Integer completedEnd = jdbc.queryForObject(
+            "SELECT max(range_end) FROM job_chunks WHERE job_id = :jobId AND partitions = :partitions AND partition_no = :partition",
+            Map.of("jobId", jobId, "partitions", partitions, "partition", partition), Integer.class);
+        int start = completedEnd == null ? 1 : completedEnd + 1;
+        int lockTimeouts = 0;
+        while (start <= maxId) {
+            int chunkSize = chunkSizer.nextChunkSize(sizerKey);
+            int end = Math.min(start + chunkSize - 1, maxId);
+            long started = System.nanoTime();
+            int rows;
+            try {
+                try (Statement statement = conn.createStatement()) {
+                    // Wait at most this long for a row lock held by another writer, then retry with a smaller chunk
+                    statement.execute("SET LOCAL lock_timeout = '" + lockTimeout.toMillis() + "ms'");
+                }
+                rows = applyChunk(conn, username, stagingTable, rangeColumn, start, end, partitionFilter);
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO job_chunks(job_id, partitions, partition_no, range_start, range_end, rows_updated, completed_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, NOW())")) {
+                    ps.setObject(1, jobId);
+                    ps.setInt(2, partitions);
+                    ps.setInt(3, partition);
+                    ps.setInt(4, start);
+                    ps.setInt(5, end);
+                    ps.setInt(6, rows);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException ex) {
+                conn.rollback();
+                // 55P03 lock_not_available: lock_timeout expired
+                if (!"55P03".equals(ex.getSQLState()) || ++lockTimeouts > MAX_LOCK_TIMEOUT_RETRIES) {
+                    throw ex;
+                }
+                chunkSizer.recordLockTimeout(sizerKey);
+                continue;
+            }
+            lockTimeouts = 0;
+            chunkSizer.recordChunk(sizerKey, end - start + 1, rows, System.nanoTime() - started);
+            // Committed rows are now visible to readers: drop read-side caches (SSRM blocks, counts, ...)
+            eventPublisher.publishEvent(new TableDataChangedEvent(TARGET_TABLE));
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Audit trail, group summary delta and UPDATE of the staged rows rangeColumn start..end (within the partition).
+     * Does not commit.
+     * @return The number of main_table rows updated.
+     */
+    private int applyChunk(Connection conn, String username, String stagingTable, String rangeColumn, int start, int end,
+                           String partitionFilter) throws SQLException {
+        String chunkJoin = "FROM main_table m JOIN " + stagingTable + " t " +
+            "ON m.pk_col = t.pk_col AND t." + rangeColumn + " BETWEEN " + start + " AND " + end + partitionFilter;
+        // 7. Audit Trail inside chunk
+        String auditSql = "INSERT INTO main_table_history(pk_col, changed_at, changed_by, old_values, new_values) " +
+            "SELECT m.pk_col, NOW(), ?, row_to_json(m), row_to_json(t) " + chunkJoin;
+        try (PreparedStatement ps = conn.prepareStatement(auditSql)) {
+            ps.setString(1, username);
+            ps.executeUpdate();
+        }
+
+        // Group summaries: take the chunk's rows out before the update and add them back after it,
+        // so the summary delta commits with the chunk (no-op unless employee.ssrm.group-summary.enabled).
+        // Each row once: a pk_col repeated in the chunk is updated once but would be joined once per staged row
+        String chunkRowsSql = "SELECT m.* FROM main_table m WHERE m.pk_col IN (SELECT t.pk_col FROM " + stagingTable + " t " +
+            "WHERE t." + rangeColumn + " BETWEEN " + start + " AND " + end + partitionFilter + ")";
+        groupSummaryStore.removeRows(conn, TARGET_TABLE, chunkRowsSql);
+
+        // Update chunk
+        String colsSql = ALLOWED_COLUMNS.stream()
+            .map(c -> c + " = t." + c)
+            .collect(Collectors.joining(", "));
+        String updateSql = String.format(
+            "UPDATE main_table m SET %s FROM %s t WHERE m.pk_col = t.pk_col AND t.%s BETWEEN %d AND %d%s",
+            colsSql, stagingTable, rangeColumn, start, end, partitionFilter
+        );
+        int rows;
+        try (Statement statement = conn.createStatement()) {
+            rows = statement.executeUpdate(updateSql);
+        }
+        groupSummaryStore.addRows(conn, TARGET_TABLE, chunkRowsSql);
+        return rows;
     }
 
     private void updateStatus(UUID jobId, String status) {
@@ -224,11 +588,23 @@ WHERE table_name = 'main_table'
   AND column_name NOT IN ('pk_col', /*...*/ 'additional columns')
 ORDER BY ordinal_position;
 
--- Temp Table Creation
-CREATE UNLOGGED TEMP TABLE temp_upload (...);
+-- Staging Table Creation (one per job, shared by the apply workers' connections)
+CREATE UNLOGGED TABLE upload_staging_<jobid> (...);
+
+-- Validation: done while parsing; failures are saved to job_errors in batches, resolved ids go to <col>_id
 
--- Validation Example
-INSERT INTO job_errors(...) SELECT ...;
+-- Per-chunk completion of the apply (one row per committed chunk, written in the chunk's transaction);
+-- range_start/range_end are csv_ids for the serial apply, apply_seqs within the partition for the workers
+CREATE TABLE job_chunks (
+  job_id       UUID        NOT NULL,
+  partitions   INT         NOT NULL,
+  partition_no INT         NOT NULL,
+  range_start  INT         NOT NULL,
+  range_end    INT         NOT NULL,
+  rows_updated INT         NOT NULL,
+  completed_at TIMESTAMPTZ NOT NULL,
+  PRIMARY KEY (job_id, partitions, partition_no, range_start)
+);
 
 -- Chunked Update & Audit
 INSERT INTO main_table_history(...);
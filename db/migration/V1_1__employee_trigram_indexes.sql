@@ -0,0 +1,19 @@
+-- Trigram indexes for the grid's contains / notContains / endsWith text filters.
+-- With these in place TextSearchSupport renders those filters as "col ILIKE '%x%'",
+-- which PostgreSQL answers with a bitmap scan on the GIN index instead of a sequential scan.
+-- Patterns shorter than three characters cannot be served by trigrams and still scan.
+--
+-- On a large, live table create the indexes CONCURRENTLY instead (outside a transaction).
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_employee_name_trgm
+    ON employee USING gin (name gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_employee_department_trgm
+    ON employee USING gin (department gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_employee_job_title_trgm
+    ON employee USING gin (job_title gin_trgm_ops);
+
+ANALYZE employee;
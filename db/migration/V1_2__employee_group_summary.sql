@@ -0,0 +1,18 @@
+-- Pre-aggregated group counts and salary sums for GroupSummaryStore (employee.ssrm.group-summary.enabled).
+-- One row per group value of every configured grouping: group_columns is the grouping's entity fields
+-- ("department", "department+jobTitle"), key1/key2 the group values as text (key2 NULL for single columns).
+-- The rows are rebuilt at startup and maintained incrementally by the bulk update in the same transaction
+-- as each chunk.
+--
+-- Requires PostgreSQL 15 or later: NULLS NOT DISTINCT lets the delta upserts (ON CONFLICT) treat NULL
+-- group values as one group. Older versions reject this migration; keep the group summary disabled there.
+
+CREATE TABLE IF NOT EXISTS employee_group_summary (
+    group_columns TEXT    NOT NULL,
+    key1          TEXT,
+    key2          TEXT,
+    row_count     BIGINT  NOT NULL,
+    salary_sum    NUMERIC NOT NULL,
+    salary_count  BIGINT  NOT NULL,
+    CONSTRAINT uq_employee_group_summary UNIQUE NULLS NOT DISTINCT (group_columns, key1, key2)
+);
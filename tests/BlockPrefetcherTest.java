@@ -0,0 +1,138 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Speculative prefetch: which blocks are scheduled, and which pending prefetches are cancelled when the grid
+ * changes. The executor only queues the tasks, so each test decides when a prefetch runs.
+ */
+class BlockPrefetcherTest {
+
+    private static final String SORT_DESC = "[{'colId':'salary','sort':'desc'}]";
+    private static final String SORT_ASC = "[{'colId':'salary','sort':'asc'}]";
+
+    private final List<Runnable> queued = new ArrayList<>();
+    private EmployeeService employeeService;
+    private SsrmBlockCache blockCache;
+
+    @BeforeEach
+    void setUp() {
+        employeeService = mock(EmployeeService.class);
+        blockCache = new SsrmBlockCache(true, 1 << 20);
+    }
+
+    @Test
+    void schedulesTheNextBlockOfTheView() {
+        BlockPrefetcher prefetcher = prefetcher(1, 4);
+
+        prefetcher.afterServe(PostgresTestSupport.leafRequest(0, 100, SORT_DESC, "{}"), 100, -1, "grid");
+        runQueued();
+
+        ArgumentCaptor<ServerSideGetRowsRequest> prefetched = ArgumentCaptor.forClass(ServerSideGetRowsRequest.class);
+        verify(employeeService).getData(prefetched.capture());
+        assertEquals(100, prefetched.getValue().getStartRow());
+        assertEquals(200, prefetched.getValue().getEndRow());
+        assertEquals(SsrmRequests.viewSignature(PostgresTestSupport.leafRequest(0, 100, SORT_DESC, "{}")),
+                SsrmRequests.viewSignature(prefetched.getValue()));
+    }
+
+    @Test
+    void nothingIsScheduledPastTheLastRow() {
+        BlockPrefetcher prefetcher = prefetcher(2, 4);
+
+        // The served block ends at lastRow
+        prefetcher.afterServe(PostgresTestSupport.leafRequest(0, 100, SORT_DESC, "{}"), 100, 100, "grid");
+        // A short block is the last one
+        prefetcher.afterServe(PostgresTestSupport.leafRequest(200, 300, SORT_DESC, "{}"), 40, -1, "grid");
+
+        assertTrue(queued.isEmpty());
+    }
+
+    @Test
+    void cachedBlocksAreNotPrefetched() {
+        BlockPrefetcher prefetcher = prefetcher(1, 4);
+        ServerSideGetRowsRequest next = PostgresTestSupport.leafRequest(100, 200, SORT_DESC, "{}");
+        blockCache.put(next, new ServerSideGetRowsResponse(new ArrayList<>(), -1), blockCache.generation());
+
+        prefetcher.afterServe(PostgresTestSupport.leafRequest(0, 100, SORT_DESC, "{}"), 100, -1, "grid");
+
+        assertTrue(queued.isEmpty());
+    }
+
+    @Test
+    void concurrencyLimitSkipsFurtherPrefetches() {
+        BlockPrefetcher prefetcher = prefetcher(3, 1);
+
+        prefetcher.afterServe(PostgresTestSupport.leafRequest(0, 100, SORT_DESC, "{}"), 100, -1, "grid");
+
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    void changedSortCancelsPendingPrefetches() {
+        BlockPrefetcher prefetcher = prefetcher(1, 4);
+        prefetcher.afterServe(PostgresTestSupport.leafRequest(0, 100, SORT_DESC, "{}"), 100, -1, "grid");
+
+        // The user sorts the other way before the prefetch started
+        prefetcher.beforeServe(PostgresTestSupport.leafRequest(0, 100, SORT_ASC, "{}"), "grid");
+        runQueued();
+
+        verify(employeeService, never()).getData(any());
+    }
+
+    @Test
+    void otherGridsKeepTheirPrefetches() {
+        BlockPrefetcher prefetcher = prefetcher(1, 4);
+        prefetcher.afterServe(PostgresTestSupport.leafRequest(0, 100, SORT_DESC, "{}"), 100, -1, "grid-1");
+
+        prefetcher.beforeServe(PostgresTestSupport.leafRequest(0, 100, SORT_ASC, "{}"), "grid-2");
+        runQueued();
+
+        verify(employeeService).getData(any());
+    }
+
+    @Test
+    void expandingASiblingGroupKeepsPrefetches() {
+        BlockPrefetcher prefetcher = prefetcher(1, 4);
+        prefetcher.afterServe(groupRequest("Dept 1"), 100, -1, "grid");
+
+        // Same grouping, sort and filters, another node
+        prefetcher.beforeServe(groupRequest("Dept 2"), "grid");
+        runQueued();
+
+        verify(employeeService).getData(any());
+    }
+
+    private BlockPrefetcher prefetcher(int blocksAhead, int maxConcurrent) {
+        return new BlockPrefetcher(employeeService, blockCache, new ObjectMapper(), queued::add,
+                true, blocksAhead, maxConcurrent, Duration.ofMillis(10), 100);
+    }
+
+    private void runQueued() {
+        List<Runnable> tasks = new ArrayList<>(queued);
+        queued.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private static ServerSideGetRowsRequest groupRequest(String department) {
+        return PostgresTestSupport.request("{'startRow':0,'endRow':100,"
+                + "'rowGroupCols':[{'id':'department','field':'department'},{'id':'jobTitle','field':'jobTitle'}],"
+                + "'groupKeys':['" + department + "'],'filterModel':{},'sortModel':[]}");
+    }
+}
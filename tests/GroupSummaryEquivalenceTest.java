@@ -0,0 +1,160 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Group levels served from the group summary must equal the ones the query path computes: the same groups
+ * (the NULL group included), aggregates, order (database collation, typed keys, NULL placement) and lastRow,
+ * also after rows were moved between groups through the removeRows/addRows delta.
+ */
+class GroupSummaryEquivalenceTest extends PostgresTestSupport {
+
+    private static final String GROUPINGS = "department,jobTitle,department+jobTitle,salary,hireDate";
+
+    private static ConfigurableApplicationContext summaryContext;
+    private static ConfigurableApplicationContext queryContext;
+    private static EmployeeService summaryService;
+    private static EmployeeService queryService;
+    private static GroupSummaryStore summaryStore;
+
+    @BeforeAll
+    static void start() {
+        summaryContext = startContext("employee.ssrm.block-cache.enabled=false",
+                "employee.ssrm.group-summary.enabled=true",
+                "employee.ssrm.group-summary.groupings=" + GROUPINGS);
+        queryContext = startContext("employee.ssrm.block-cache.enabled=false",
+                "employee.ssrm.count-cache.ttl=0s");
+        summaryService = summaryContext.getBean(EmployeeService.class);
+        queryService = queryContext.getBean(EmployeeService.class);
+        summaryStore = summaryContext.getBean(GroupSummaryStore.class);
+    }
+
+    @AfterAll
+    static void stop() {
+        summaryContext.close();
+        queryContext.close();
+    }
+
+    static Stream<String> levels() {
+        String department = "{'id':'department','field':'department'}";
+        String jobTitle = "{'id':'jobTitle','field':'jobTitle'}";
+        String sum = "[{'id':'salary','field':'salary','aggFunc':'sum'}]";
+        String avg = "[{'id':'salary','field':'salary','aggFunc':'avg'}]";
+        String count = "[{'id':'salary','field':'salary','aggFunc':'count'}]";
+        return Stream.of(
+                level("[" + department + "]", sum, "[]", "[]", 0, 100),
+                level("[" + department + "]", sum, "[]", "[{'colId':'department','sort':'desc'}]", 0, 100),
+                level("[" + department + "]", sum, "[]", "[{'colId':'salary','sort':'desc'}]", 0, 100),
+                level("[" + department + "]", avg, "[]", "[{'colId':'salary','sort':'asc'}]", 0, 100),
+                level("[" + department + "]", count, "[]", "[{'colId':'agGrid_Count','sort':'desc'}]", 0, 100),
+                // A page in the middle of the level
+                level("[" + department + "]", sum, "[]", "[]", 2, 5),
+                level("[" + jobTitle + "]", avg, "[]", "[]", 0, 100),
+                level("[" + department + "," + jobTitle + "]", sum, "[]", "[]", 0, 100),
+                level("[" + department + "," + jobTitle + "]", sum, "['Dept 3']", "[{'colId':'jobTitle','sort':'desc'}]", 0, 100),
+                level("[" + department + "," + jobTitle + "]", count, "[null]", "[]", 0, 100),
+                // Typed keys: integers and dates sort by value, not as text (no value column, it would share the field)
+                level("[{'id':'salary','field':'salary'}]", "[]", "[]", "[]", 0, 100),
+                level("[{'id':'salary','field':'salary'}]", "[]", "[]", "[{'colId':'salary','sort':'desc'}]", 0, 100),
+                level("[{'id':'hireDate','field':'hireDate'}]", count, "[]", "[{'colId':'hireDate','sort':'desc'}]", 0, 1000));
+    }
+
+    @ParameterizedTest
+    @MethodSource("levels")
+    void summaryLevelMatchesQuery(String request) {
+        assertSameLevel(request(request));
+    }
+
+    @Test
+    void levelsMatchAfterRowsMovedThroughDelta() throws SQLException {
+        DataSource dataSource = summaryContext.getBean(DataSource.class);
+        JdbcTemplate jdbc = summaryContext.getBean(JdbcTemplate.class);
+        String rowsSql = "SELECT e.* FROM employee e WHERE e.id IN (1, 2, 3, 26)";
+        Map<Long, Map<String, Object>> original = jdbc.queryForList("SELECT id, department, salary FROM employee WHERE id IN (1, 2, 3, 26)")
+                .stream().collect(Collectors.toMap(row -> ((Number) row.get("id")).longValue(), row -> row));
+        try {
+            // A new group, a row moved into the NULL group, and a salary that sorts before 30000 as text
+            applyChange(dataSource, rowsSql, "UPDATE employee SET department = 'Dept 9' WHERE id IN (1, 2);"
+                    + "UPDATE employee SET department = NULL WHERE id = 3;"
+                    + "UPDATE employee SET salary = 100000 WHERE id = 26");
+
+            for (String request : levels().collect(Collectors.toList())) {
+                assertSameLevel(request(request));
+            }
+        } finally {
+            StringBuilder restore = new StringBuilder();
+            original.forEach((id, row) -> restore.append("UPDATE employee SET department = ")
+                    .append(row.get("department") == null ? "NULL" : "'" + row.get("department") + "'")
+                    .append(", salary = ").append(row.get("salary") == null ? "NULL" : row.get("salary"))
+                    .append(" WHERE id = ").append(id).append(';'));
+            applyChange(dataSource, rowsSql, restore.toString());
+        }
+    }
+
+    /**
+     * Updates rows the way the bulk upload does: delta out, update, delta in, one transaction.
+     */
+    private static void applyChange(DataSource dataSource, String rowsSql, String updateSql) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            summaryStore.removeRows(conn, summaryStore.getTable(), rowsSql);
+            try (Statement statement = conn.createStatement()) {
+                statement.execute(updateSql);
+            }
+            summaryStore.addRows(conn, summaryStore.getTable(), rowsSql);
+            conn.commit();
+        }
+    }
+
+    /**
+     * Compares the summary and query responses of a level. Rows that tie on the sort columns may come in any
+     * order from the query path, so the order is compared on the sort columns and the rows as a set.
+     */
+    private static void assertSameLevel(ServerSideGetRowsRequest request) {
+        // The level must actually be served from the summary
+        assertNotNull(summaryStore.getGroupLevel(request), "not served from the summary");
+        ServerSideGetRowsResponse summary = summaryService.getData(request);
+        ServerSideGetRowsResponse query = queryService.getData(request);
+
+        assertEquals(query.getLastRow(), summary.getLastRow(), "lastRow");
+        List<Map<String, Object>> summaryRows = normalized(summary.getRows());
+        List<Map<String, Object>> queryRows = normalized(query.getRows());
+        List<String> sortColumns = request.getSortModel().isEmpty()
+                ? List.of(request.getRowGroupCols().get(request.getGroupKeys().size()).getField())
+                : request.getSortModel().stream().map(ServerSideGetRowsRequest.SortModel::getColId).collect(Collectors.toList());
+        assertEquals(sortValues(queryRows, sortColumns), sortValues(summaryRows, sortColumns), "order");
+        assertEquals(new HashSet<>(queryRows), new HashSet<>(summaryRows), "rows");
+    }
+
+    private static List<List<Object>> sortValues(List<Map<String, Object>> rows, List<String> sortColumns) {
+        return rows.stream()
+                .map(row -> sortColumns.stream().map(row::get).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+
+    private static String level(String rowGroupCols, String valueCols, String groupKeys, String sortModel, int startRow, int endRow) {
+        return "{'startRow':" + startRow + ",'endRow':" + endRow + ",'rowGroupCols':" + rowGroupCols + ",'valueCols':" + valueCols
+                + ",'groupKeys':" + groupKeys + ",'filterModel':{},'sortModel':" + sortModel + "}";
+    }
+}
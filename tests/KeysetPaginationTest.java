@@ -0,0 +1,141 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Keyset (seek) pagination of leaf blocks: scrolling through a view block by block must return exactly the
+ * rows of the equivalent ORDER BY query, including runs of NULL sort keys (whose anchors cannot be sought
+ * from, so the next block falls back to OFFSET) and a table change between two blocks (which drops the anchors).
+ */
+class KeysetPaginationTest extends PostgresTestSupport {
+
+    private static final int BLOCK_SIZE = 7;
+
+    private static ConfigurableApplicationContext context;
+    private static EmployeeService employeeService;
+    private static KeysetAnchorCache anchorCache;
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void start() {
+        // Every block is read from the database, not from the block cache
+        context = startContext("employee.ssrm.block-cache.enabled=false");
+        employeeService = context.getBean(EmployeeService.class);
+        anchorCache = context.getBean(KeysetAnchorCache.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @Test
+    void scrollingAscendingWithNullKeysMatchesOrderBy() {
+        String sortModel = "[{'colId':'department','sort':'asc'},{'colId':'salary','sort':'desc'}]";
+        List<Long> expected = jdbc.queryForList(
+                "SELECT id FROM employee ORDER BY department ASC NULLS LAST, salary DESC NULLS FIRST, id", Long.class);
+
+        assertEquals(expected, scroll(sortModel));
+    }
+
+    @Test
+    void scrollingDescendingWithNullKeysMatchesOrderBy() {
+        String sortModel = "[{'colId':'salary','sort':'desc'}]";
+        List<Long> expected = jdbc.queryForList("SELECT id FROM employee ORDER BY salary DESC NULLS FIRST, id", Long.class);
+
+        assertEquals(expected, scroll(sortModel));
+    }
+
+    @Test
+    void scrollingFilteredViewMatchesOrderBy() {
+        String sortModel = "[{'colId':'salary','sort':'asc'}]";
+        String filterModel = "{'jobTitle':{'filterType':'text','type':'equals','filter':'Title 1'}}";
+        List<Long> expected = jdbc.queryForList(
+                "SELECT id FROM employee WHERE job_title = 'Title 1' ORDER BY salary ASC NULLS LAST, id", Long.class);
+
+        List<Long> scrolled = new ArrayList<>();
+        for (int startRow = 0; startRow < expected.size(); startRow += BLOCK_SIZE) {
+            scrolled.addAll(ids(employeeService.getData(leafRequest(startRow, startRow + BLOCK_SIZE, sortModel, filterModel))));
+        }
+        assertEquals(expected, scrolled);
+    }
+
+    @Test
+    void nextBlockSeeksFromRememberedAnchor() {
+        String sortModel = "[{'colId':'salary','sort':'asc'}]";
+        ServerSideGetRowsRequest first = leafRequest(0, BLOCK_SIZE, sortModel, "{}");
+        ServerSideGetRowsRequest second = leafRequest(BLOCK_SIZE, 2 * BLOCK_SIZE, sortModel, "{}");
+        List<Long> expected = jdbc.queryForList(
+                "SELECT id FROM employee ORDER BY salary ASC NULLS LAST, id LIMIT ? OFFSET ?", Long.class, BLOCK_SIZE, BLOCK_SIZE);
+
+        employeeService.getData(first);
+        assertNotNull(anchorCache.find(SsrmRequests.viewSignature(second), BLOCK_SIZE));
+        assertEquals(expected, ids(employeeService.getData(second)));
+        // Reading the same block again reuses the anchor and returns the same rows
+        assertEquals(expected, ids(employeeService.getData(second)));
+    }
+
+    @Test
+    void tableChangeBetweenBlocksDropsAnchors() {
+        String sortModel = "[{'colId':'salary','sort':'asc'}]";
+        ServerSideGetRowsRequest second = leafRequest(BLOCK_SIZE, 2 * BLOCK_SIZE, sortModel, "{}");
+        employeeService.getData(leafRequest(0, BLOCK_SIZE, sortModel, "{}"));
+        Long movedId = jdbc.queryForObject("SELECT id FROM employee ORDER BY salary ASC NULLS LAST, id LIMIT 1", Long.class);
+        Integer originalSalary = jdbc.queryForObject("SELECT salary FROM employee WHERE id = ?", Integer.class, movedId);
+        try {
+            // Moves a row of the first block to the end of the order
+            jdbc.update("UPDATE employee SET salary = 1000000 WHERE id = ?", movedId);
+            context.publishEvent(new TableDataChangedEvent("employee"));
+            assertNull(anchorCache.find(SsrmRequests.viewSignature(second), BLOCK_SIZE));
+
+            List<Long> expected = jdbc.queryForList(
+                    "SELECT id FROM employee ORDER BY salary ASC NULLS LAST, id LIMIT ? OFFSET ?", Long.class, BLOCK_SIZE, BLOCK_SIZE);
+            assertEquals(expected, ids(employeeService.getData(second)));
+        } finally {
+            jdbc.update("UPDATE employee SET salary = ? WHERE id = ?", originalSalary, movedId);
+            context.publishEvent(new TableDataChangedEvent("employee"));
+        }
+    }
+
+    @Test
+    void anchorReadBeforeClearIsNotRemembered() {
+        KeysetAnchorCache cache = new KeysetAnchorCache(10);
+        long generation = cache.generation();
+        cache.clear();
+
+        cache.remember("view", BLOCK_SIZE, new Object[]{30000, 1L}, generation);
+        assertNull(cache.find("view", BLOCK_SIZE));
+
+        cache.remember("view", BLOCK_SIZE, new Object[]{30000, 1L}, cache.generation());
+        assertArrayEquals(new Object[]{30000, 1L}, cache.find("view", BLOCK_SIZE));
+    }
+
+    /**
+     * Reads the whole unfiltered view block by block, from the top, the way the grid does while scrolling.
+     */
+    private static List<Long> scroll(String sortModel) {
+        List<Long> scrolled = new ArrayList<>();
+        ServerSideGetRowsResponse response = null;
+        for (int startRow = 0; startRow < EMPLOYEE_COUNT; startRow += BLOCK_SIZE) {
+            response = employeeService.getData(leafRequest(startRow, startRow + BLOCK_SIZE, sortModel, "{}"));
+            scrolled.addAll(ids(response));
+        }
+        assertEquals(EMPLOYEE_COUNT, response.getLastRow());
+        return scrolled;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Shared database for the service tests: one PostgreSQL 15 container (Testcontainers) per test JVM, with the
+ * employee table created by Hibernate, seeded once and migrated with db/migration. Test contexts are started
+ * like the benchmark's (service and model packages, no web server) with per-test properties, so several
+ * contexts with different settings can run against the same rows, e.g. to compare two query paths.
+ * <p>
+ * The seed has NULL departments (every 10th row) and salaries (every 13th row) and many equal salaries, so
+ * sorting, grouping and keyset seeks all meet NULLs and ties.
+ * <p>
+ * Requires Docker, junit-jupiter, org.testcontainers:postgresql, spring-boot-starter-data-jpa and the
+ * PostgreSQL JDBC driver on the test classpath, plus the application classes (service, dto, model).
+ * Run from the repository root, the migrations are read from db/migration.
+ */
+abstract class PostgresTestSupport {
+
+    static final int EMPLOYEE_COUNT = 500;
+
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static boolean initialized;
+
+    /** Minimal boot context: the application's service/model packages, no web server. */
+    @SpringBootApplication(scanBasePackages = "com.example.aggridssremployee.service")
+    @EntityScan("com.example.aggridssremployee.model")
+    static class TestApplication {
+
+        // No Actuator here; SsrmMetrics still needs a registry
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    /**
+     * Starts a context on the shared database, creating and seeding it first if this is the first context.
+     * @param properties Extra "key=value" properties, e.g. "employee.ssrm.plan-cache.enabled=false".
+     */
+    static ConfigurableApplicationContext startContext(String... properties) {
+        initDatabase();
+        // The schema exists by now; contexts that start at the same time must not change it
+        return run("spring.jpa.hibernate.ddl-auto=none", properties);
+    }
+
+    /**
+     * Creates the schema from the entities in a throwaway context, then seeds and migrates it. Done before
+     * any test context starts, because GroupSummaryStore builds its summary from the rows at startup.
+     */
+    private static synchronized void initDatabase() {
+        if (initialized) {
+            return;
+        }
+        // Stopped by Testcontainers when the JVM exits
+        POSTGRES.start();
+        try (ConfigurableApplicationContext schemaContext = run("spring.jpa.hibernate.ddl-auto=create")) {
+            JdbcTemplate jdbc = schemaContext.getBean(JdbcTemplate.class);
+            jdbc.update("INSERT INTO employee (id, name, department, job_title, salary, hire_date) "
+                    + "SELECT x, 'Employee ' || x, CASE WHEN x % 10 = 0 THEN NULL ELSE 'Dept ' || (x % 7) END, "
+                    + "'Title ' || (x % 4), CASE WHEN x % 13 = 0 THEN NULL ELSE 30000 + (x % 50) * 1000 END, "
+                    + "DATE '2024-12-31' - (x * 31) % 5000 "
+                    + "FROM generate_series(1, ?) x", EMPLOYEE_COUNT);
+            jdbc.execute(readMigration("V1_1__employee_trigram_indexes.sql"));
+            jdbc.execute(readMigration("V1_2__employee_group_summary.sql"));
+        }
+        initialized = true;
+    }
+
+    private static ConfigurableApplicationContext run(String ddlAuto, String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "spring.datasource.url=" + POSTGRES.getJdbcUrl(),
+                "spring.datasource.username=" + POSTGRES.getUsername(),
+                "spring.datasource.password=" + POSTGRES.getPassword(),
+                ddlAuto,
+                "spring.jpa.open-in-view=false",
+                "logging.level.com.example.aggridssremployee=WARN"));
+        all.addAll(List.of(properties));
+        return new SpringApplicationBuilder(TestApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(all.toArray(new String[0]))
+                .run();
+    }
+
+    private static String readMigration(String name) {
+        try {
+            return Files.readString(Path.of("db", "migration", name));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Run the tests from the repository root", e);
+        }
+    }
+
+    /**
+     * Builds a request the way the controller receives it from the grid. Single quotes stand for double
+     * quotes, so the JSON can be written inline: "{'startRow':0,'endRow':100}".
+     */
+    static ServerSideGetRowsRequest request(String json) {
+        try {
+            return MAPPER.readValue(json.replace('\'', '"'), ServerSideGetRowsRequest.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A leaf block request of an ungrouped grid.
+     * @param sortModel The sortModel as JSON (single quotes), e.g. "[{'colId':'salary','sort':'desc'}]".
+     * @param filterModel The filterModel as JSON (single quotes), e.g. "{}".
+     */
+    static ServerSideGetRowsRequest leafRequest(int startRow, int endRow, String sortModel, String filterModel) {
+        return request("{'startRow':" + startRow + ",'endRow':" + endRow + ",'rowGroupCols':[],'groupKeys':[],"
+                + "'filterModel':" + filterModel + ",'sortModel':" + sortModel + "}");
+    }
+
+    /**
+     * @return The ids of the rows, in order.
+     */
+    static List<Long> ids(ServerSideGetRowsResponse response) {
+        return response.getRows().stream()
+                .map(row -> ((Number) row.get("id")).longValue())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return The rows with every number as a double rounded to 6 decimals and everything else as text, so aggregates
+     *         computed as BigDecimal, Long or Double (and averages divided in Java or in SQL) compare equal.
+     */
+    static List<Map<String, Object>> normalized(List<Map<String, Object>> rows) {
+        return rows.stream()
+                .map(row -> row.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
+                        e -> e.getValue() instanceof Number n ? (Object) (Math.round(n.doubleValue() * 1e6) / 1e6) : String.valueOf(e.getValue()))))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compiled filter plans (employee.ssrm.plan-cache.enabled, parameterized and cached per query shape) must return
+ * the same rows and lastRow as the literal predicates of buildWherePredicates, for every filter type and
+ * condition. Each request is served twice by the plan context (compiling the plan, then reusing it), and
+ * several filters share a shape with different values, so cached plans are also bound to new values.
+ */
+class PredicatePlanEquivalenceTest extends PostgresTestSupport {
+
+    private static final String SORT = "[{'colId':'salary','sort':'desc'}]";
+
+    private static ConfigurableApplicationContext planContext;
+    private static ConfigurableApplicationContext literalContext;
+    private static EmployeeService planService;
+    private static EmployeeService literalService;
+
+    @BeforeAll
+    static void start() {
+        // Every request is answered by its own query, not from the block or count caches of an earlier one
+        String[] uncached = {"employee.ssrm.block-cache.enabled=false", "employee.ssrm.count-cache.ttl=0s"};
+        planContext = startContext(concat(uncached, "employee.ssrm.plan-cache.enabled=true"));
+        literalContext = startContext(concat(uncached, "employee.ssrm.plan-cache.enabled=false"));
+        planService = planContext.getBean(EmployeeService.class);
+        literalService = literalContext.getBean(EmployeeService.class);
+    }
+
+    @AfterAll
+    static void stop() {
+        planContext.close();
+        literalContext.close();
+    }
+
+    static Stream<String> filterModels() {
+        String manyDepartments = IntStream.range(0, 100)
+                .mapToObj(i -> "'Dept " + i + "'")
+                .collect(Collectors.joining(","));
+        return Stream.of(
+                "{}",
+                "{'name':{'filterType':'text','type':'contains','filter':'1'}}",
+                "{'name':{'filterType':'text','type':'contains','filter':'23'}}",
+                "{'name':{'filterType':'text','type':'notContains','filter':'5'}}",
+                "{'department':{'filterType':'text','type':'equals','filter':'DEPT 3'}}",
+                "{'department':{'filterType':'text','type':'notEqual','filter':'Dept 3'}}",
+                "{'name':{'filterType':'text','type':'startsWith','filter':'employee 4'}}",
+                "{'name':{'filterType':'text','type':'endsWith','filter':'7'}}",
+                "{'department':{'filterType':'text','type':'blank','filter':'x'}}",
+                "{'department':{'filterType':'text','type':'notBlank','filter':'x'}}",
+                "{'name':{'filterType':'text','type':'contains','filter':'50%_'}}",
+                "{'salary':{'filterType':'number','type':'equals','filter':'45000'}}",
+                "{'salary':{'filterType':'number','type':'notEqual','filter':'45000'}}",
+                "{'salary':{'filterType':'number','type':'lessThan','filter':'40000'}}",
+                "{'salary':{'filterType':'number','type':'greaterThanOrEqual','filter':'70000'}}",
+                "{'salary':{'filterType':'number','type':'inRange','filter':'40000','filterTo':50000}}",
+                "{'salary':{'filterType':'number','type':'blank','filter':'0'}}",
+                "{'hireDate':{'filterType':'date','type':'equals','filter':'2024-12-31'}}",
+                "{'hireDate':{'filterType':'date','type':'lessThan','filter':'2015-01-01'}}",
+                "{'hireDate':{'filterType':'date','type':'greaterThan','filter':'2020-06-30'}}",
+                "{'department':{'filterType':'set','values':['Dept 1','Dept 4']}}",
+                "{'department':{'filterType':'set','values':['Dept 2','Dept 5','Dept 6']}}",
+                // Above the array-binding threshold: one array parameter instead of an IN list
+                "{'department':{'filterType':'set','values':[" + manyDepartments + "]}}",
+                "{'salary':{'filterType':'set','values':['30000','31000','79000']}}",
+                "{'department':{'filterType':'set','values':['Dept 1','Dept 2']},"
+                        + "'name':{'filterType':'text','type':'contains','filter':'3'},"
+                        + "'salary':{'filterType':'number','type':'greaterThan','filter':'50000'}}");
+    }
+
+    @ParameterizedTest
+    @MethodSource("filterModels")
+    void leafBlocksMatch(String filterModel) {
+        for (int startRow : new int[]{0, 50}) {
+            assertSameResponse(leafRequest(startRow, startRow + 50, SORT, filterModel));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("filterModels")
+    void groupLevelsMatch(String filterModel) {
+        String rowGroupCols = "[{'id':'department','field':'department'},{'id':'jobTitle','field':'jobTitle'}]";
+        String valueCols = "[{'id':'salary','field':'salary','aggFunc':'avg'}]";
+        assertSameResponse(request("{'startRow':0,'endRow':100,'rowGroupCols':" + rowGroupCols + ",'valueCols':" + valueCols
+                + ",'groupKeys':[],'filterModel':" + filterModel + ",'sortModel':[]}"));
+        assertSameResponse(request("{'startRow':0,'endRow':100,'rowGroupCols':" + rowGroupCols + ",'valueCols':" + valueCols
+                + ",'groupKeys':['Dept 2'],'filterModel':" + filterModel + ",'sortModel':[]}"));
+        assertSameResponse(request("{'startRow':0,'endRow':100,'rowGroupCols':" + rowGroupCols + ",'valueCols':" + valueCols
+                + ",'groupKeys':['Dept 2','Title 1'],'filterModel':" + filterModel + ",'sortModel':" + SORT + "}"));
+    }
+
+    private static void assertSameResponse(ServerSideGetRowsRequest request) {
+        ServerSideGetRowsResponse literal = literalService.getData(request);
+        // The first request compiles and caches the plan, the second one reuses it
+        planService.getData(request);
+        ServerSideGetRowsResponse plan = planService.getData(request);
+
+        assertEquals(literal.getRows(), plan.getRows());
+        assertEquals(literal.getLastRow(), plan.getLastRow());
+    }
+
+    private static String[] concat(String[] properties, String property) {
+        return Stream.concat(Stream.of(properties), Stream.of(property)).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.aggridssremployee.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Row count cache invalidation: counts expire after the TTL, the least recently used count is evicted first,
+ * a table change drops all counts, and a count read before a table change is not stored after it.
+ */
+class RowCountCacheTest {
+
+    @Test
+    void countReadBeforeTableChangeIsDropped() {
+        RowCountCache cache = new RowCountCache(Duration.ofMinutes(1), 10);
+        long generation = cache.generation();
+        // The table changes while the count query runs
+        cache.onTableDataChanged(new TableDataChangedEvent("employee"));
+
+        cache.put("view", 500, generation);
+        assertNull(cache.get("view"));
+
+        cache.put("view", 499, cache.generation());
+        assertEquals(499L, cache.get("view"));
+    }
+
+    @Test
+    void tableChangeDropsCounts() {
+        RowCountCache cache = new RowCountCache(Duration.ofMinutes(1), 10);
+        cache.put("a", 1, cache.generation());
+        cache.put("b", 2, cache.generation());
+
+        cache.onTableDataChanged(new TableDataChangedEvent("employee"));
+
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void countsExpireAfterTtl() throws InterruptedException {
+        RowCountCache cache = new RowCountCache(Duration.ofMillis(20), 10);
+        cache.put("view", 500, cache.generation());
+        assertEquals(500L, cache.get("view"));
+
+        Thread.sleep(50);
+        assertNull(cache.get("view"));
+    }
+
+    @Test
+    void leastRecentlyUsedCountIsEvicted() {
+        RowCountCache cache = new RowCountCache(Duration.ofMinutes(1), 2);
+        cache.put("a", 1, cache.generation());
+        cache.put("b", 2, cache.generation());
+        // "a" is now more recently used than "b"
+        cache.get("a");
+
+        cache.put("c", 3, cache.generation());
+
+        assertEquals(1L, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3L, cache.get("c"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Batched blocks: whether blocks are merged into one range query or split into several runs, every result of
+ * getDataBatch must equal the block served on its own by getData, in request order. A failing run only fails
+ * its own requests.
+ */
+class SsrmBatchTest extends PostgresTestSupport {
+
+    private static final String SORT = "[{'colId':'salary','sort':'desc'}]";
+
+    private static ConfigurableApplicationContext context;
+    private static EmployeeService employeeService;
+
+    @BeforeAll
+    static void start() {
+        context = startContext(
+                // Compare with blocks read from the database, not with the blocks the batch cached
+                "employee.ssrm.block-cache.enabled=false",
+                // 0-50 and 50-100 merge, 80-130 would make the run 130 rows long and starts a new run
+                "employee.ssrm.batch.max-merged-rows=120");
+        employeeService = context.getBean(EmployeeService.class);
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @Test
+    void mergedAndSplitRunsMatchSingleBlocks() {
+        List<ServerSideGetRowsRequest> requests = List.of(
+                leafRequest(300, 350, SORT, "{}"),
+                leafRequest(50, 100, SORT, "{}"),
+                leafRequest(0, 50, SORT, "{}"),
+                leafRequest(80, 130, SORT, "{}"),
+                // Past the end of the view
+                leafRequest(480, 530, SORT, "{}"));
+
+        assertMatchesSingleBlocks(requests, employeeService.getDataBatch(requests));
+    }
+
+    @Test
+    void blocksOfSeveralViewsMatchSingleBlocks() {
+        String rowGroupCols = "[{'id':'department','field':'department'},{'id':'jobTitle','field':'jobTitle'}]";
+        String valueCols = "[{'id':'salary','field':'salary','aggFunc':'sum'}]";
+        List<ServerSideGetRowsRequest> requests = List.of(
+                leafRequest(0, 50, SORT, "{}"),
+                request("{'startRow':0,'endRow':100,'rowGroupCols':" + rowGroupCols + ",'valueCols':" + valueCols
+                        + ",'groupKeys':[],'filterModel':{},'sortModel':[]}"),
+                leafRequest(0, 50, SORT, "{'name':{'filterType':'text','type':'contains','filter':'1'}}"),
+                request("{'startRow':0,'endRow':100,'rowGroupCols':" + rowGroupCols + ",'valueCols':" + valueCols
+                        + ",'groupKeys':['Dept 3'],'filterModel':{},'sortModel':[]}"),
+                leafRequest(50, 100, SORT, "{}"));
+
+        assertMatchesSingleBlocks(requests, employeeService.getDataBatch(requests));
+    }
+
+    @Test
+    void failingRunOnlyFailsItsOwnRequests() {
+        List<ServerSideGetRowsRequest> requests = List.of(
+                leafRequest(0, 50, SORT, "{}"),
+                leafRequest(0, 50, "[{'colId':'noSuchColumn','sort':'asc'}]", "{}"),
+                leafRequest(50, 100, "[{'colId':'noSuchColumn','sort':'asc'}]", "{}"),
+                leafRequest(50, 100, SORT, "{}"));
+
+        List<SsrmBatchResult> results = employeeService.getDataBatch(requests);
+
+        assertNotNull(results.get(1).error());
+        assertNotNull(results.get(2).error());
+        assertMatchesSingleBlock(requests.get(0), results.get(0));
+        assertMatchesSingleBlock(requests.get(3), results.get(3));
+    }
+
+    private static void assertMatchesSingleBlocks(List<ServerSideGetRowsRequest> requests, List<SsrmBatchResult> results) {
+        assertEquals(requests.size(), results.size());
+        for (int i = 0; i < requests.size(); i++) {
+            assertMatchesSingleBlock(requests.get(i), results.get(i));
+        }
+    }
+
+    private static void assertMatchesSingleBlock(ServerSideGetRowsRequest request, SsrmBatchResult result) {
+        assertNull(result.error());
+        ServerSideGetRowsResponse single = employeeService.getData(request);
+        assertEquals(single.getRows(), result.response().getRows(),
+                "rows " + request.getStartRow() + "-" + request.getEndRow());
+        assertEquals(single.getLastRow(), result.response().getLastRow());
+    }
+}
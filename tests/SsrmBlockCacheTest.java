@@ -0,0 +1,110 @@
+package com.example.aggridssremployee.service;
+
+import com.example.aggridssremployee.dto.ServerSideGetRowsRequest;
+import com.example.aggridssremployee.dto.ServerSideGetRowsResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Block cache invalidation: a table change drops all blocks, a block read before a table change is not stored
+ * after it (the race between a slow query and a bulk update), and the byte budget evicts the least recently
+ * used blocks.
+ */
+class SsrmBlockCacheTest {
+
+    private static final String SORT = "[{'colId':'salary','sort':'desc'}]";
+
+    @Test
+    void blockReadBeforeTableChangeIsDropped() {
+        SsrmBlockCache cache = new SsrmBlockCache(true, 1 << 20);
+        ServerSideGetRowsRequest request = PostgresTestSupport.leafRequest(0, 100, SORT, "{}");
+        long generation = cache.generation();
+        // A bulk update commits while the block is read
+        cache.onTableDataChanged(new TableDataChangedEvent("employee"));
+
+        cache.put(request, response(10), generation);
+        assertNull(cache.get(request));
+
+        ServerSideGetRowsResponse fresh = response(10);
+        cache.put(request, fresh, cache.generation());
+        assertSame(fresh, cache.get(request));
+    }
+
+    @Test
+    void tableChangeDropsBlocks() {
+        SsrmBlockCache cache = new SsrmBlockCache(true, 1 << 20);
+        ServerSideGetRowsRequest first = PostgresTestSupport.leafRequest(0, 100, SORT, "{}");
+        ServerSideGetRowsRequest second = PostgresTestSupport.leafRequest(100, 200, SORT, "{}");
+        cache.put(first, response(10), cache.generation());
+        cache.put(second, response(10), cache.generation());
+
+        cache.onTableDataChanged(new TableDataChangedEvent("employee"));
+
+        assertNull(cache.get(first));
+        assertNull(cache.get(second));
+    }
+
+    @Test
+    void blocksOfOtherViewsAreSeparate() {
+        SsrmBlockCache cache = new SsrmBlockCache(true, 1 << 20);
+        cache.put(PostgresTestSupport.leafRequest(0, 100, SORT, "{}"), response(10), cache.generation());
+
+        assertNull(cache.get(PostgresTestSupport.leafRequest(0, 100, "[{'colId':'salary','sort':'asc'}]", "{}")));
+        assertNull(cache.get(PostgresTestSupport.leafRequest(0, 100, SORT,
+                "{'name':{'filterType':'text','type':'contains','filter':'1'}}")));
+        assertNotNull(cache.get(PostgresTestSupport.leafRequest(0, 100, SORT, "{}")));
+    }
+
+    @Test
+    void byteBudgetEvictsLeastRecentlyUsedBlocks() {
+        // Room for about two blocks of 10 rows
+        SsrmBlockCache cache = new SsrmBlockCache(true, 2 * weightOf(10) + weightOf(10) / 2);
+        ServerSideGetRowsRequest a = PostgresTestSupport.leafRequest(0, 100, SORT, "{}");
+        ServerSideGetRowsRequest b = PostgresTestSupport.leafRequest(100, 200, SORT, "{}");
+        ServerSideGetRowsRequest c = PostgresTestSupport.leafRequest(200, 300, SORT, "{}");
+        cache.put(a, response(10), cache.generation());
+        cache.put(b, response(10), cache.generation());
+        // "a" is now more recently used than "b"
+        cache.get(a);
+
+        cache.put(c, response(10), cache.generation());
+
+        assertNotNull(cache.get(a));
+        assertNull(cache.get(b));
+        assertNotNull(cache.get(c));
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        SsrmBlockCache cache = new SsrmBlockCache(false, 1 << 20);
+        ServerSideGetRowsRequest request = PostgresTestSupport.leafRequest(0, 100, SORT, "{}");
+
+        cache.put(request, response(10), cache.generation());
+
+        assertNull(cache.get(request));
+    }
+
+    private static ServerSideGetRowsResponse response(int rowCount) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(Map.of("id", i, "name", "Employee " + i));
+        }
+        return new ServerSideGetRowsResponse(rows, -1);
+    }
+
+    // Same estimate as SsrmBlockCache: 64 bytes per row, 48 per value plus 2 per character of text
+    private static long weightOf(int rowCount) {
+        long bytes = 0;
+        for (int i = 0; i < rowCount; i++) {
+            bytes += 64 + 2 * 48 + 2L * ("Employee " + i).length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Chunk sizing of the bulk apply: the size moves toward the target latency, grows at most by doubling, halves
+ * on a lock timeout, stays within the min/max bounds and is learned per key. Target 100 ms, sizes 10 to 1000.
+ */
+class AdaptiveChunkSizerTest {
+
+    private static final String KEY = "main_table/1";
+
+    private final AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(Duration.ofMillis(100), 10, 1000, 100);
+
+    @Test
+    void startsWithTheInitialSize() {
+        assertEquals(100, sizer.nextChunkSize(KEY));
+    }
+
+    @Test
+    void fastChunksGrowAtMostByDoubling() {
+        // 10 µs per id would allow 10000 ids
+        sizer.recordChunk(KEY, 100, 100, Duration.ofMillis(1).toNanos());
+        assertEquals(200, sizer.nextChunkSize(KEY));
+
+        sizer.recordChunk(KEY, 200, 200, Duration.ofMillis(2).toNanos());
+        assertEquals(400, sizer.nextChunkSize(KEY));
+    }
+
+    @Test
+    void slowChunksShrinkTowardTheTargetLatency() {
+        // 2 ms per id: 50 ids take 100 ms
+        sizer.recordChunk(KEY, 100, 100, Duration.ofMillis(200).toNanos());
+        assertEquals(50, sizer.nextChunkSize(KEY));
+    }
+
+    @Test
+    void costIsSmoothedOverChunks() {
+        sizer.recordChunk(KEY, 100, 100, Duration.ofMillis(200).toNanos());
+        // 0.1 ms per id only moves the smoothed cost to 0.3 * 0.1 + 0.7 * 2 = 1.43 ms per id
+        sizer.recordChunk(KEY, 50, 50, Duration.ofMillis(5).toNanos());
+        assertEquals(69, sizer.nextChunkSize(KEY));
+    }
+
+    @Test
+    void lockTimeoutHalvesTheSize() {
+        sizer.recordLockTimeout(KEY);
+        assertEquals(50, sizer.nextChunkSize(KEY));
+
+        sizer.recordLockTimeout(KEY);
+        assertEquals(25, sizer.nextChunkSize(KEY));
+    }
+
+    @Test
+    void sizeStaysWithinBounds() {
+        for (int i = 0; i < 5; i++) {
+            sizer.recordLockTimeout(KEY);
+        }
+        assertEquals(10, sizer.nextChunkSize(KEY));
+
+        String other = "main_table/2";
+        for (int i = 0; i < 10; i++) {
+            sizer.recordChunk(other, sizer.nextChunkSize(other), 0, Duration.ofMillis(1).toNanos());
+        }
+        assertEquals(1000, sizer.nextChunkSize(other));
+
+        assertEquals(1000, new AdaptiveChunkSizer(Duration.ofMillis(100), 10, 1000, 5000).nextChunkSize(KEY));
+        assertEquals(10, new AdaptiveChunkSizer(Duration.ofMillis(100), 10, 1000, 1).nextChunkSize(KEY));
+    }
+
+    @Test
+    void keysAreSizedSeparately() {
+        sizer.recordLockTimeout(KEY);
+
+        assertEquals(50, sizer.nextChunkSize(KEY));
+        assertEquals(100, sizer.nextChunkSize("main_table/4"));
+        assertEquals(100, sizer.nextChunkSize("other_table/1"));
+    }
+}
@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Reference dictionaries resolve CSV values like the LOWER(TRIM(...)) join they replaced: case and surrounding
+ * spaces are ignored, the lowest id wins for ambiguous names, unknown values resolve to null, and an
+ * invalidated dictionary is reloaded with the table's current rows.
+ * <p>
+ * Requires Docker (PostgreSQL 15 via Testcontainers), spring-jdbc and the PostgreSQL JDBC driver.
+ */
+class ReferenceDictionaryCacheTest {
+
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private ReferenceDictionaryCache cache;
+
+    @BeforeAll
+    static void start() {
+        POSTGRES.start();
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        jdbcTemplate.execute("CREATE TABLE reference_department (id BIGINT PRIMARY KEY, name TEXT NOT NULL)");
+    }
+
+    @AfterAll
+    static void stop() {
+        POSTGRES.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE reference_department");
+        jdbcTemplate.execute("INSERT INTO reference_department VALUES (1, 'Sales'), (2, 'Engineering'), (3, ' engineering '), (4, 'R&D')");
+        cache = new ReferenceDictionaryCache(jdbcTemplate, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void resolvesNamesIgnoringCaseAndSpaces() {
+        ReferenceDictionaryCache.Dictionary dictionary = cache.get("department");
+
+        assertEquals(1L, dictionary.resolve("Sales"));
+        assertEquals(1L, dictionary.resolve("  SALES "));
+        assertEquals(4L, dictionary.resolve("r&d"));
+    }
+
+    @Test
+    void lowestIdWinsForAmbiguousNames() {
+        ReferenceDictionaryCache.Dictionary dictionary = cache.get("department");
+
+        assertEquals(2L, dictionary.resolve("ENGINEERING"));
+        assertEquals(3, dictionary.size());
+    }
+
+    @Test
+    void unknownValuesResolveToNull() {
+        ReferenceDictionaryCache.Dictionary dictionary = cache.get("department");
+
+        assertNull(dictionary.resolve("Marketing"));
+        assertNull(dictionary.resolve(""));
+        assertNull(dictionary.resolve(null));
+        // TRIM only strips spaces, like in PostgreSQL
+        assertNull(dictionary.resolve("\tSales"));
+    }
+
+    @Test
+    void dictionaryIsServedFromMemoryWithinTheTtl() {
+        assertSame(cache.get("department"), cache.get("department"));
+    }
+
+    @Test
+    void invalidatedDictionaryIsReloaded() {
+        assertNull(cache.get("department").resolve("Marketing"));
+        jdbcTemplate.execute("INSERT INTO reference_department VALUES (5, 'Marketing')");
+
+        cache.invalidate("department");
+
+        assertEquals(5L, cache.get("department").resolve(" marketing"));
+    }
+}